@@ -0,0 +1,153 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Measures whole LiSA runs of the four analyses of this project, each on the
+ * input program it is evaluated on. To see how the cost scales with the size
+ * of the program, the input is replicated {@code copies} times, renaming the
+ * class of each copy. Parsing happens once per trial and no output is
+ * produced, so that only the fixpoint computation is measured. Run with
+ * {@code ./gradlew jmh}, which also enables the {@code gc} profiler to report
+ * allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnalysisBenchmark {
+
+	@Param({ "signs", "ext-sign", "ext-sign-persistent", "ext-sign-sparse",
+			"reaching-definitions", "available-expressions" })
+	public String analysis;
+
+	@Param({ "1", "8", "64" })
+	public int copies;
+
+	private Program program;
+	private Path workdir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, ParsingException {
+		workdir = Files.createTempDirectory("scsr-bench");
+		Path input = workdir.resolve("input.imp");
+		Files.write(input, replicate(Paths.get("inputs", inputOf(analysis)), copies).getBytes(StandardCharsets.UTF_8));
+		program = IMPFrontend.processFile(input.toString());
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws IOException {
+		Files.deleteIfExists(workdir.resolve("input.imp"));
+		Files.deleteIfExists(workdir);
+	}
+
+	@Benchmark
+	public Program analyze() throws AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setWorkdir(workdir.toString());
+		conf.setAbstractState(stateOf(analysis));
+		new LiSA(conf).run(program);
+		return program;
+	}
+
+	private static String inputOf(String analysis) {
+		switch (analysis) {
+		case "signs":
+			return "signs.imp";
+		case "ext-sign":
+		case "ext-sign-persistent":
+		case "ext-sign-sparse":
+			return "ext-sign-eval.imp";
+		case "reaching-definitions":
+			return "reaching-definitions.imp";
+		case "available-expressions":
+			return "ae-eval.imp";
+		default:
+			throw new IllegalArgumentException("Unknown analysis: " + analysis);
+		}
+	}
+
+	static SimpleAbstractState<?, ?, ?> stateOf(String analysis) {
+		switch (analysis) {
+		case "signs":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new ValueEnvironment<>(new Signs()),
+					new TypeEnvironment<>(new InferredTypes()));
+		case "ext-sign":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new ValueEnvironment<>(new ExtSignDomainSolution()),
+					new TypeEnvironment<>(new InferredTypes()));
+		case "ext-sign-persistent":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new PersistentSignEnvironment(SignSemantics.EXT_SIGNS),
+					new TypeEnvironment<>(new InferredTypes()));
+		case "ext-sign-sparse":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new SparseSignEnvironment(SignSemantics.EXT_SIGNS),
+					new TypeEnvironment<>(new InferredTypes()));
+		case "reaching-definitions":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+					new TypeEnvironment<>(new InferredTypes()));
+		case "available-expressions":
+			return new SimpleAbstractState<>(
+					new MonolithicHeap(),
+					new DefiniteForwardDataflowDomain<>(new AvailableExpressionsSolution()),
+					new TypeEnvironment<>(new InferredTypes()));
+		default:
+			throw new IllegalArgumentException("Unknown analysis: " + analysis);
+		}
+	}
+
+	/**
+	 * Concatenates {@code copies} copies of the given IMP file, appending the
+	 * index of the copy to the name of each class to keep them distinct.
+	 */
+	static String replicate(Path file, int copies) throws IOException {
+		String source = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < copies; i++)
+			builder.append(source.replaceAll("\\bclass\\s+(\\w+)", "class $1_" + i)).append("\n");
+		return builder.toString();
+	}
+}
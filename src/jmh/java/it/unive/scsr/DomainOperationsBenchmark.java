@@ -0,0 +1,207 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.caches.Caches;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.type.Type;
+import it.unive.lisa.type.common.Int32;
+import it.unive.lisa.util.collections.externalSet.ExternalSet;
+
+/**
+ * Measures the operations the fixpoint calls most often on each domain of
+ * this project, outside of a full analysis: the evaluation of binary
+ * expressions, lub and lessOrEqual for the sign domains, and gen/kill
+ * (through an assignment), lub and lessOrEqual for the dataflow domains. The
+ * dataflow states hold one definition or expression for each of
+ * {@code variables} variables, to show how the cost of the operations grows
+ * with the size of the state.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DomainOperationsBenchmark {
+
+	private static final BinaryOperator[] OPERATORS = { NumericNonOverflowingAdd.INSTANCE,
+			NumericNonOverflowingSub.INSTANCE, NumericNonOverflowingMul.INSTANCE, NumericNonOverflowingDiv.INSTANCE };
+
+	@Param({ "4", "32", "256" })
+	public int variables;
+
+	private Signs signs;
+	private Signs[] signValues;
+	private ExtSignDomainSolution extSigns;
+	private ExtSignDomainSolution[] extSignValues;
+
+	private Identifier[] ids;
+	private ValueExpression[] expressions;
+	private ProgramPoint[] points;
+
+	private PossibleForwardDataflowDomain<ReachingDefinitions> rd;
+	private PossibleForwardDataflowDomain<ReachingDefinitions> rdOther;
+	private DefiniteForwardDataflowDomain<AvailableExpressionsSolution> ae;
+	private DefiniteForwardDataflowDomain<AvailableExpressionsSolution> aeOther;
+
+	@Setup
+	public void setup() throws ParsingException, SemanticException {
+		signs = new Signs();
+		Signs.Sign[] sign = Signs.Sign.values();
+		signValues = new Signs[sign.length];
+		for (int i = 0; i < sign.length; i++)
+			signValues[i] = new Signs(sign[i]);
+
+		extSigns = new ExtSignDomainSolution();
+		ExtSignDomainSolution.Sign[] extSign = ExtSignDomainSolution.Sign.values();
+		extSignValues = new ExtSignDomainSolution[extSign.length];
+		for (int i = 0; i < extSign.length; i++)
+			extSignValues[i] = ExtSignDomainSolution.of(extSign[i]);
+
+		// the dataflow domains need real program points for their locations
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		List<ProgramPoint> nodes = new ArrayList<>();
+		for (CFG cfg : program.getAllCFGs())
+			for (Statement st : cfg.getNodes())
+				nodes.add(st);
+
+		ExternalSet<Type> ints = Caches.types().mkSingletonSet(Int32.INSTANCE);
+		ids = new Identifier[variables];
+		expressions = new ValueExpression[variables];
+		points = new ProgramPoint[variables];
+		for (int i = 0; i < variables; i++) {
+			ids[i] = new Variable(ints, "x" + i, SyntheticLocation.INSTANCE);
+			points[i] = nodes.get(i % nodes.size());
+		}
+		for (int i = 0; i < variables; i++)
+			expressions[i] = new BinaryExpression(ints, ids[(i + 1) % variables],
+					new Constant(Int32.INSTANCE, i, SyntheticLocation.INSTANCE), OPERATORS[i % OPERATORS.length],
+					SyntheticLocation.INSTANCE);
+
+		rd = new PossibleForwardDataflowDomain<>(new ReachingDefinitions());
+		rdOther = rd;
+		ae = new DefiniteForwardDataflowDomain<>(new AvailableExpressionsSolution());
+		aeOther = ae;
+		for (int i = 0; i < variables; i++) {
+			rd = rd.assign(ids[i], expressions[i], points[i]);
+			ae = ae.assign(ids[i], expressions[i], points[i]);
+			// the other states differ in half of the variables
+			if (i % 2 == 0) {
+				rdOther = rdOther.assign(ids[i], expressions[i], points[(i + 1) % variables]);
+				aeOther = aeOther.assign(ids[(i + 1) % variables], expressions[i], points[i]);
+			}
+		}
+	}
+
+	@Benchmark
+	public void signsEvalBinaryExpression(Blackhole bh) throws SemanticException {
+		for (BinaryOperator op : OPERATORS)
+			for (Signs left : signValues)
+				for (Signs right : signValues)
+					bh.consume(signs.evalBinaryExpression(op, left, right, null));
+	}
+
+	@Benchmark
+	public void signsLub(Blackhole bh) throws SemanticException {
+		for (Signs left : signValues)
+			for (Signs right : signValues)
+				bh.consume(left.lub(right));
+	}
+
+	@Benchmark
+	public void signsLessOrEqual(Blackhole bh) throws SemanticException {
+		for (Signs left : signValues)
+			for (Signs right : signValues)
+				bh.consume(left.lessOrEqual(right));
+	}
+
+	@Benchmark
+	public void extSignEvalBinaryExpression(Blackhole bh) {
+		for (BinaryOperator op : OPERATORS)
+			for (ExtSignDomainSolution left : extSignValues)
+				for (ExtSignDomainSolution right : extSignValues)
+					bh.consume(extSigns.evalBinaryExpression(op, left, right, null));
+	}
+
+	@Benchmark
+	public void extSignLub(Blackhole bh) throws SemanticException {
+		for (ExtSignDomainSolution left : extSignValues)
+			for (ExtSignDomainSolution right : extSignValues)
+				bh.consume(left.lub(right));
+	}
+
+	@Benchmark
+	public void extSignLessOrEqual(Blackhole bh) throws SemanticException {
+		for (ExtSignDomainSolution left : extSignValues)
+			for (ExtSignDomainSolution right : extSignValues)
+				bh.consume(left.lessOrEqual(right));
+	}
+
+	@Benchmark
+	public void reachingDefinitionsGenKill(Blackhole bh) throws SemanticException {
+		for (int i = 0; i < variables; i++)
+			bh.consume(rd.assign(ids[i], expressions[i], points[(i + 1) % variables]));
+	}
+
+	@Benchmark
+	public PossibleForwardDataflowDomain<ReachingDefinitions> reachingDefinitionsLub() throws SemanticException {
+		return rd.lub(rdOther);
+	}
+
+	@Benchmark
+	public boolean reachingDefinitionsLessOrEqual() throws SemanticException {
+		return rd.lessOrEqual(rdOther);
+	}
+
+	@Benchmark
+	public void availableExpressionsGenKill(Blackhole bh) throws SemanticException {
+		for (int i = 0; i < variables; i++)
+			bh.consume(ae.assign(ids[i], expressions[i], points[i]));
+	}
+
+	@Benchmark
+	public DefiniteForwardDataflowDomain<AvailableExpressionsSolution> availableExpressionsLub()
+			throws SemanticException {
+		return ae.lub(aeOther);
+	}
+
+	@Benchmark
+	public boolean availableExpressionsLessOrEqual() throws SemanticException {
+		return ae.lessOrEqual(aeOther);
+	}
+}
@@ -0,0 +1,90 @@
+package it.unive.scsr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+
+/**
+ * Compares the table-driven transfer functions of
+ * {@link ExtSignDomainSolution} with the previous implementation, kept as
+ * {@link LegacyExtSignDomain}. Both sides go through
+ * {@code evalBinaryExpression}, operator dispatch included. Run with
+ * {@code ./gradlew jmh} and the {@code gc} profiler to also compare the
+ * allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtSignDomainSolutionBenchmark {
+
+	@Param({ "+", "-", "*", "/" })
+	public String operator;
+
+	private BinaryOperator op;
+	private ExtSignDomainSolution domain;
+	private ExtSignDomainSolution[] values;
+	private LegacyExtSignDomain legacy;
+	private LegacyExtSignDomain[] legacyValues;
+
+	@Setup
+	public void setup() {
+		switch (operator) {
+		case "+":
+			op = NumericNonOverflowingAdd.INSTANCE;
+			break;
+		case "-":
+			op = NumericNonOverflowingSub.INSTANCE;
+			break;
+		case "*":
+			op = NumericNonOverflowingMul.INSTANCE;
+			break;
+		default:
+			op = NumericNonOverflowingDiv.INSTANCE;
+		}
+
+		domain = new ExtSignDomainSolution();
+		ExtSignDomainSolution.Sign[] signs = ExtSignDomainSolution.Sign.values();
+		values = new ExtSignDomainSolution[signs.length];
+		for (int i = 0; i < signs.length; i++)
+			values[i] = ExtSignDomainSolution.of(signs[i]);
+		legacy = new LegacyExtSignDomain();
+		LegacyExtSignDomain.Sign[] legacySigns = LegacyExtSignDomain.Sign.values();
+		legacyValues = new LegacyExtSignDomain[legacySigns.length];
+		for (int i = 0; i < legacySigns.length; i++)
+			legacyValues[i] = LegacyExtSignDomain.of(legacySigns[i]);
+	}
+
+	@Benchmark
+	public void tables(Blackhole bh) {
+		for (ExtSignDomainSolution left : values)
+			for (ExtSignDomainSolution right : values)
+				bh.consume(domain.evalBinaryExpression(op, left, right, null));
+	}
+
+	@Benchmark
+	public void branches(Blackhole bh) {
+		for (LegacyExtSignDomain left : legacyValues)
+			for (LegacyExtSignDomain right : legacyValues)
+				bh.consume(legacy.evalBinaryExpression(op, left, right, null));
+	}
+}
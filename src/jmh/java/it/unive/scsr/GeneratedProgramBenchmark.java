@@ -0,0 +1,89 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Measures whole LiSA runs on programs produced by
+ * {@link ImpProgramGenerator}, to see how each analysis scales with the size
+ * of methods, the number of variables and the nesting of loops.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratedProgramBenchmark {
+
+	@Param({ "signs", "ext-sign", "reaching-definitions", "available-expressions" })
+	public String analysis;
+
+	@Param({ "5", "50" })
+	public int straightLine;
+
+	@Param({ "4", "32" })
+	public int variables;
+
+	@Param({ "1", "3" })
+	public int loopDepth;
+
+	private Program program;
+	private Path workdir;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, ParsingException {
+		workdir = Files.createTempDirectory("scsr-bench");
+		Path input = workdir.resolve("input.imp");
+		String source = new ImpProgramGenerator()
+				.setSeed(42)
+				.setMethods(10)
+				.setStraightLine(straightLine)
+				.setLoopDepth(loopDepth)
+				.setBranching(2)
+				.setVariables(variables)
+				.setExpressionDepth(3)
+				.generate("generated");
+		Files.write(input, source.getBytes(StandardCharsets.UTF_8));
+		program = IMPFrontend.processFile(input.toString());
+	}
+
+	@TearDown(Level.Trial)
+	public void teardown() throws IOException {
+		Files.deleteIfExists(workdir.resolve("input.imp"));
+		Files.deleteIfExists(workdir);
+	}
+
+	@Benchmark
+	public Program analyze() throws AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setWorkdir(workdir.toString());
+		conf.setAbstractState(AnalysisBenchmark.stateOf(analysis));
+		new LiSA(conf).run(program);
+		return program;
+	}
+}
@@ -0,0 +1,301 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.outputs.DotCFG;
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.type.Type;
+
+/**
+ * An on-disk cache of analysis results, to re-analyze only the CFGs that
+ * changed since the last run. Each CFG is keyed by a SHA-256 hash of its
+ * signature, its statements and edges, the class of the analyzed domain and
+ * a version string, to be bumped whenever the semantics of the domain
+ * changes. Statements are identified by their position in a canonical visit
+ * of the CFG rather than by their location, so that editing a method does
+ * not invalidate the ones following it in the same file. On a miss, the CFG
+ * is analyzed alone and the state after each statement is stored under its
+ * key, in canonical order, together with the name of the dot file LiSA dumps
+ * for it. Either way, the dot file is then rendered by LiSA from the current
+ * CFG and the stored states, so that it shows the current locations, and the
+ * {@code report.json} listing all files is written as LiSA does. Analyzing
+ * CFGs alone yields the same results as analyzing them together since calls
+ * are not followed, and since no semantic checks are executed, there are no
+ * warnings to cache.
+ */
+public class AnalysisCache {
+
+	// the file of each entry holding the name of the dot file, followed by the
+	// state after each statement in canonical order
+	private static final String STATES = "states";
+
+	// the layout of the entries, to be bumped whenever it changes
+	private static final int FORMAT = 2;
+
+	private final Path directory;
+	private final Class<?> domain;
+	private final String version;
+
+	private int hits, misses;
+
+	public AnalysisCache(Path directory, Class<?> domain, String version) {
+		this.directory = directory;
+		this.domain = domain;
+		this.version = version;
+	}
+
+	/**
+	 * Yields the number of CFGs whose results were taken from the cache by the
+	 * last run.
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * Yields the number of CFGs that were analyzed by the last run.
+	 */
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Analyzes the given program, dumping the results of every CFG and the
+	 * report in {@code workdir}. The abstract state is created anew for each
+	 * analyzed CFG.
+	 */
+	public void run(Program program, Supplier<SimpleAbstractState<?, ?, ?>> state, String workdir)
+			throws AnalysisException, IOException {
+		hits = 0;
+		misses = 0;
+		Path output = Paths.get(workdir);
+		Files.createDirectories(output);
+
+		TreeSet<String> files = new TreeSet<>();
+		for (CFG cfg : program.getAllCFGs()) {
+			List<Statement> order = canonicalOrder(cfg);
+			Path entry = directory.resolve(keyOf(cfg, order));
+			if (Files.isDirectory(entry))
+				hits++;
+			else {
+				misses++;
+				analyze(program, cfg, order, state, entry);
+			}
+
+			List<String> stored = Files.readAllLines(entry.resolve(STATES), StandardCharsets.UTF_8);
+			Map<Statement, String> states = new HashMap<>();
+			for (int i = 0; i < order.size(); i++)
+				states.put(order.get(i), unescape(stored.get(i + 1)));
+			String file = stored.get(0);
+			try (Writer writer = Files.newBufferedWriter(output.resolve(file), StandardCharsets.UTF_8)) {
+				DotCFG.fromCFG(cfg, states::get).dumpDot(writer);
+			}
+			files.add(file);
+		}
+
+		try (Writer writer = Files.newBufferedWriter(output.resolve("report.json"), StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"warnings\" : [ ],\n  \"files\" : [ ");
+			boolean first = true;
+			for (String file : files) {
+				if (!first)
+					writer.write(", ");
+				first = false;
+				writer.write("\"" + file.replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+			}
+			writer.write(first ? "]\n}" : " ]\n}");
+		}
+	}
+
+	private void analyze(Program program, CFG cfg, List<Statement> order,
+			Supplier<SimpleAbstractState<?, ?, ?>> state, Path entry) throws AnalysisException, IOException {
+		Program single = new Program();
+		for (Type type : program.getRegisteredTypes())
+			single.registerType(type);
+		CompilationUnit unit = new CompilationUnit(cfg.getDescriptor().getLocation(),
+				cfg.getDescriptor().getUnit().getName(), false);
+		unit.addCFG(cfg);
+		single.addCompilationUnit(unit);
+
+		// the dump is only used to learn the name LiSA gives to the file
+		Path tmp = Files.createTempDirectory(directory.getFileName() + "-");
+		StateCollector<?, ?, ?, ?> collector = new StateCollector<>();
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir(tmp.toString());
+		conf.setAbstractState(state.get());
+		conf.addSemanticCheck(collector);
+		new LiSA(conf).run(single);
+
+		List<String> lines = new ArrayList<>();
+		try (DirectoryStream<Path> produced = Files.newDirectoryStream(tmp, "*.dot")) {
+			for (Path file : produced)
+				lines.add(file.getFileName().toString());
+		}
+		delete(tmp);
+		if (lines.size() != 1)
+			throw new AnalysisException("Expected one result for " + cfg + ", found " + lines.size());
+		String signature = cfg.getDescriptor().getFullSignatureWithParNames();
+		for (Statement st : order)
+			// same key of StateCollector
+			lines.add(escape(collector.getStates().get(signature + " " + st.getLocation() + " " + st)));
+
+		// entries are written to a staging directory first, so that an
+		// interrupted run never leaves a partial entry behind
+		Files.createDirectories(directory);
+		Path staging = Files.createTempDirectory(directory, "staging-");
+		Files.write(staging.resolve(STATES), lines, StandardCharsets.UTF_8);
+		try {
+			Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			// another run stored the same entry in the meantime
+			delete(staging);
+			if (!Files.isDirectory(entry))
+				throw e;
+		}
+	}
+
+	private static void delete(Path dir) throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (Stream<Path> walk = Files.walk(dir)) {
+			walk.forEach(paths::add);
+		}
+		paths.sort(Comparator.reverseOrder());
+		for (Path path : paths)
+			Files.deleteIfExists(path);
+	}
+
+	// states span several lines, which are stored as one
+	private static String escape(String state) {
+		return state.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String line) {
+		StringBuilder state = new StringBuilder();
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < line.length()) {
+				c = line.charAt(++i);
+				state.append(c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+			} else
+				state.append(c);
+		}
+		return state.toString();
+	}
+
+	/**
+	 * Yields the statements of the given CFG in a canonical order that does
+	 * not depend on their locations: a depth-first visit from the entrypoints,
+	 * following the edges of each statement sorted by kind and by the text of
+	 * their destination, and then the unreachable statements sorted by text.
+	 * Ties are broken by location, whose relative order does not change when
+	 * the method is moved.
+	 */
+	static List<Statement> canonicalOrder(CFG cfg) {
+		Comparator<Statement> byText = Comparator.comparing(Statement::toString)
+				.thenComparing(st -> String.valueOf(st.getLocation()));
+		Map<Statement, List<Edge>> outgoing = new HashMap<>();
+		for (Edge edge : cfg.getEdges())
+			outgoing.computeIfAbsent(edge.getSource(), k -> new ArrayList<>()).add(edge);
+		Comparator<Edge> byKind = Comparator.comparing((Edge edge) -> edge.getClass().getSimpleName())
+				.thenComparing(Edge::getDestination, byText);
+
+		List<Statement> order = new ArrayList<>();
+		Set<Statement> visited = new HashSet<>();
+		Deque<Statement> stack = new ArrayDeque<>();
+		List<Statement> entries = new ArrayList<>(cfg.getEntrypoints());
+		entries.sort(byText.reversed());
+		stack.addAll(entries);
+		while (!stack.isEmpty()) {
+			Statement st = stack.pop();
+			if (!visited.add(st))
+				continue;
+			order.add(st);
+			List<Edge> edges = outgoing.getOrDefault(st, Collections.emptyList());
+			edges.sort(byKind);
+			// pushed in reverse, so that the first edge is followed first
+			for (int i = edges.size() - 1; i >= 0; i--)
+				if (!visited.contains(edges.get(i).getDestination()))
+					stack.push(edges.get(i).getDestination());
+		}
+
+		List<Statement> unreachable = new ArrayList<>();
+		for (Statement st : cfg.getNodes())
+			if (!visited.contains(st))
+				unreachable.add(st);
+		unreachable.sort(byText);
+		order.addAll(unreachable);
+		return order;
+	}
+
+	/**
+	 * Yields the key of the given CFG: the hexadecimal SHA-256 hash of the
+	 * layout of the entries, the domain, the version and a canonical dump of
+	 * the CFG.
+	 */
+	String keyOf(CFG cfg) {
+		return keyOf(cfg, canonicalOrder(cfg));
+	}
+
+	private String keyOf(CFG cfg, List<Statement> order) {
+		StringBuilder builder = new StringBuilder();
+		builder.append(FORMAT).append('\n').append(domain.getName()).append('\n').append(version).append('\n');
+		builder.append(cfg.getDescriptor().getFullSignatureWithParNames()).append('\n');
+
+		// statements are identified by their position in the canonical order,
+		// and edges are sorted to be independent of the iteration order of the
+		// CFG
+		Map<Statement, Integer> ordinals = new HashMap<>();
+		for (Statement st : order) {
+			builder.append(ordinals.size()).append(' ').append(st)
+					.append(cfg.getEntrypoints().contains(st) ? " entry" : "").append('\n');
+			ordinals.put(st, ordinals.size());
+		}
+		List<String> edges = new ArrayList<>();
+		for (Edge edge : cfg.getEdges())
+			edges.add(ordinals.get(edge.getSource()) + " -" + edge.getClass().getSimpleName() + "-> "
+					+ ordinals.get(edge.getDestination()));
+		Collections.sort(edges);
+		for (String edge : edges)
+			builder.append(edge).append('\n');
+
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder key = new StringBuilder();
+			for (byte b : digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8)))
+				key.append(String.format("%02x", b));
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -2,7 +2,10 @@ package it.unive.scsr;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import it.unive.lisa.analysis.ScopeToken;
 import it.unive.lisa.analysis.SemanticException;
@@ -26,12 +29,48 @@ public class AvailableExpressionsSolution
 
 	private final ValueExpression expression;
 
+	// the identifiers appearing in expression, computed once since they are
+	// needed at every gen and, for every available expression, at every kill
+	private final Set<Identifier> operands;
+
+	// cached, since ValueExpression.hashCode recurses over the whole tree
+	private final int hash;
+
+	// inverted index from each identifier to the expressions that mention it:
+	// it is created by the root instance and shared by all the elements it
+	// generates, so that kill only visits the expressions containing the
+	// assigned identifier
+	private final Map<Identifier, Set<AvailableExpressionsSolution>> byOperand;
+
+	// expressions generated during an analysis are interned here, shared like
+	// byOperand: structurally equal expressions map to a single element, so
+	// that the sets of the domain compare them by reference
+	private final Map<ValueExpression, AvailableExpressionsSolution> interned;
+
 	public AvailableExpressionsSolution() {
-		this(null);
+		this(null, new HashMap<>(), new HashMap<>());
 	}
 
-	private AvailableExpressionsSolution(ValueExpression expression) {
+	private AvailableExpressionsSolution(ValueExpression expression,
+			Map<Identifier, Set<AvailableExpressionsSolution>> byOperand,
+			Map<ValueExpression, AvailableExpressionsSolution> interned) {
 		this.expression = expression;
+		this.operands = getIdentifierOperands(expression);
+		this.byOperand = byOperand;
+		this.interned = interned;
+		this.hash = 31 + (expression == null ? 0 : expression.hashCode());
+	}
+
+	private AvailableExpressionsSolution mk(ValueExpression expression) {
+		AvailableExpressionsSolution ae = interned.get(expression);
+		if (ae != null)
+			return ae;
+
+		ae = new AvailableExpressionsSolution(expression, byOperand, interned);
+		interned.put(expression, ae);
+		for (Identifier id : ae.operands)
+			byOperand.computeIfAbsent(id, k -> new HashSet<>()).add(ae);
+		return ae;
 	}
 
 	@Override
@@ -41,43 +80,56 @@ public class AvailableExpressionsSolution
 
 	@Override
 	public Collection<Identifier> getInvolvedIdentifiers() {
-		return getIdentifierOperands(expression);
+		return operands;
 	}
 
-	private static Collection<Identifier> getIdentifierOperands(ValueExpression expression) {
-		Collection<Identifier> result = new HashSet<>();
-
+	static Set<Identifier> getIdentifierOperands(ValueExpression expression) {
 		if (expression == null)
-			return result;
+			return Collections.emptySet();
+
+		if (expression instanceof Identifier)
+			return Collections.singleton((Identifier) expression);
+
+		Set<Identifier> result = new HashSet<>();
+		collectIdentifierOperands(expression, result);
+
+		if (result.isEmpty())
+			return Collections.emptySet();
+		if (result.size() == 1)
+			return Collections.singleton(result.iterator().next());
+		return Collections.unmodifiableSet(result);
+	}
 
+	private static void collectIdentifierOperands(ValueExpression expression, Set<Identifier> result) {
 		if (expression instanceof Identifier)
 			result.add((Identifier) expression);
 
 		if (expression instanceof UnaryExpression)
-			result.addAll(getIdentifierOperands((ValueExpression) ((UnaryExpression) expression).getExpression()));
+			collectIdentifierOperands((ValueExpression) ((UnaryExpression) expression).getExpression(), result);
 
 		if (expression instanceof BinaryExpression) {
 			BinaryExpression binary = (BinaryExpression) expression;
-			result.addAll(getIdentifierOperands((ValueExpression) binary.getLeft()));
-			result.addAll(getIdentifierOperands((ValueExpression) binary.getRight()));
+			collectIdentifierOperands((ValueExpression) binary.getLeft(), result);
+			collectIdentifierOperands((ValueExpression) binary.getRight(), result);
 		}
 
 		if (expression instanceof TernaryExpression) {
 			TernaryExpression ternary = (TernaryExpression) expression;
-			result.addAll(getIdentifierOperands((ValueExpression) ternary.getLeft()));
-			result.addAll(getIdentifierOperands((ValueExpression) ternary.getMiddle()));
-			result.addAll(getIdentifierOperands((ValueExpression) ternary.getRight()));
+			collectIdentifierOperands((ValueExpression) ternary.getLeft(), result);
+			collectIdentifierOperands((ValueExpression) ternary.getMiddle(), result);
+			collectIdentifierOperands((ValueExpression) ternary.getRight(), result);
 		}
-
-		return result;
 	}
 
 	@Override
 	public Collection<AvailableExpressionsSolution> gen(Identifier id, ValueExpression expression, ProgramPoint pp,
 			DefiniteForwardDataflowDomain<AvailableExpressionsSolution> domain) {
 		Collection<AvailableExpressionsSolution> result = new HashSet<>();
-		AvailableExpressionsSolution ae = new AvailableExpressionsSolution(expression);
-		if (!ae.getInvolvedIdentifiers().contains(id) && filter(expression))
+		if (!filter(expression))
+			return result;
+
+		AvailableExpressionsSolution ae = mk(expression);
+		if (!ae.operands.contains(id))
 			result.add(ae);
 		return result;
 	}
@@ -86,13 +138,12 @@ public class AvailableExpressionsSolution
 	public Collection<AvailableExpressionsSolution> gen(ValueExpression expression, ProgramPoint pp,
 			DefiniteForwardDataflowDomain<AvailableExpressionsSolution> domain) {
 		Collection<AvailableExpressionsSolution> result = new HashSet<>();
-		AvailableExpressionsSolution ae = new AvailableExpressionsSolution(expression);
 		if (filter(expression))
-			result.add(ae);
+			result.add(mk(expression));
 		return result;
 	}
 
-	private static boolean filter(ValueExpression expression) {
+	static boolean filter(ValueExpression expression) {
 		if (expression instanceof Identifier)
 			return false;
 		if (expression instanceof Constant)
@@ -108,13 +159,21 @@ public class AvailableExpressionsSolution
 	public Collection<AvailableExpressionsSolution> kill(Identifier id, ValueExpression expression, ProgramPoint pp,
 			DefiniteForwardDataflowDomain<AvailableExpressionsSolution> domain) {
 		Collection<AvailableExpressionsSolution> result = new HashSet<>();
+		Set<AvailableExpressionsSolution> elements = domain.getDataflowElements();
+		Set<AvailableExpressionsSolution> candidates = byOperand.get(id);
+		if (candidates == null)
+			return result;
 
-		for (AvailableExpressionsSolution ae : domain.getDataflowElements()) {
-			Collection<Identifier> ids = getIdentifierOperands(ae.expression);
+		if (candidates.size() <= elements.size()) {
+			for (AvailableExpressionsSolution ae : candidates)
+				if (elements.contains(ae))
+					result.add(ae);
+			return result;
+		}
 
-			if (ids.contains(id))
+		for (AvailableExpressionsSolution ae : elements)
+			if (ae.operands.contains(id))
 				result.add(ae);
-		}
 
 		return result;
 	}
@@ -127,10 +186,7 @@ public class AvailableExpressionsSolution
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((expression == null) ? 0 : expression.hashCode());
-		return result;
+		return hash;
 	}
 
 	@Override
@@ -142,6 +198,11 @@ public class AvailableExpressionsSolution
 		if (getClass() != obj.getClass())
 			return false;
 		AvailableExpressionsSolution other = (AvailableExpressionsSolution) obj;
+		if (interned == other.interned)
+			// interned in the same table: identity is equality
+			return false;
+		if (hash != other.hash)
+			return false;
 		if (expression == null) {
 			if (other.expression != null)
 				return false;
@@ -157,11 +218,11 @@ public class AvailableExpressionsSolution
 
 	@Override
 	public AvailableExpressionsSolution pushScope(ScopeToken scope) throws SemanticException {
-		return new AvailableExpressionsSolution((ValueExpression) expression.pushScope(scope));
+		return mk((ValueExpression) expression.pushScope(scope));
 	}
 
 	@Override
 	public AvailableExpressionsSolution popScope(ScopeToken scope) throws SemanticException {
-		return new AvailableExpressionsSolution((ValueExpression) expression.popScope(scope));
+		return mk((ValueExpression) expression.popScope(scope));
 	}
 }
@@ -0,0 +1,396 @@
+package it.unive.scsr;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import it.unive.lisa.outputs.JsonReport;
+
+/**
+ * A compact binary encoding of the results of an analysis, with a reader that
+ * memory-maps the file and decodes only what is queried. Files are written
+ * while the analysis runs by a {@link BinaryResultsWriter}, so that the working
+ * directory does not fill up with dot files. All strings (node labels,
+ * attributes, and the legend that every dot file repeats) are stored once in
+ * an interned table, and graphs refer to them by index through fixed-size
+ * records, so that the state at a node can be found without parsing anything
+ * else. {@link #toDot} writes back the dot files exactly as LiSA serialized
+ * them, together with their {@code report.json}, so that fixtures stored in
+ * this format can be compared with the outputs of LiSA.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header     int magic, int version, int graphs, int strings,
+ *            long string index offset, long string data offset
+ * graphs     per graph: int name, int nodes, int lines, int unused,
+ *            long nodes offset, long lines offset
+ * nodes      per node: int id, int attributes, int statement, int state
+ * lines      per line: int kind, int a, int b, int c
+ * index      per string: int offset in data, int length
+ * data       UTF-8 bytes of all strings
+ * </pre>
+ */
+public class BinaryResults implements Closeable {
+
+	private static final int MAGIC = 0x53435352; // "SCSR"
+	private static final int VERSION = 1;
+	private static final int HEADER = 32;
+	private static final int GRAPH_ENTRY = 32;
+	private static final int NODE_ENTRY = 16;
+	private static final int LINE_ENTRY = 16;
+	private static final int STRING_ENTRY = 8;
+
+	// kinds of lines: verbatim text, a node (a = index of the node), or an
+	// edge (a = source, b = destination, c = attributes)
+	private static final int RAW = 0;
+	private static final int NODE = 1;
+	private static final int EDGE = 2;
+
+	private static final int NONE = -1;
+
+	// the lines of a dot file that are encoded as nodes and edges: any other
+	// line, or any line formatted differently, is stored verbatim
+	private static final Pattern NODE_LINE = Pattern.compile("\t\"([^\"]*)\" \\[(.*?)label=<(.*)>\\];");
+	private static final Pattern EDGE_LINE = Pattern.compile("\t\"([^\"]*)\" -> \"([^\"]*)\" \\[(.*)\\];");
+	private static final String LINE_BREAK = "<BR/>";
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int graphs;
+	private final long stringIndex;
+	private final long stringData;
+
+	private BinaryResults(FileChannel channel, ByteBuffer buffer) throws IOException {
+		this.channel = channel;
+		this.buffer = buffer;
+		if (buffer.getInt(0) != MAGIC)
+			throw new IOException("Not a binary results file");
+		if (buffer.getInt(4) != VERSION)
+			throw new IOException("Unsupported binary results version: " + buffer.getInt(4));
+		this.graphs = buffer.getInt(8);
+		this.stringIndex = buffer.getLong(16);
+		this.stringData = buffer.getLong(24);
+	}
+
+	/**
+	 * Memory-maps the given binary results file.
+	 */
+	public static BinaryResults open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Binary results files larger than 2GB are not supported");
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new BinaryResults(channel, buffer);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private String string(int index) {
+		if (index == NONE)
+			return null;
+		int entry = (int) (stringIndex + (long) index * STRING_ENTRY);
+		int offset = buffer.getInt(entry);
+		int length = buffer.getInt(entry + 4);
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position((int) (stringData + offset));
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int graphEntry(int graph) {
+		if (graph < 0 || graph >= graphs)
+			throw new IndexOutOfBoundsException("No graph " + graph);
+		return HEADER + graph * GRAPH_ENTRY;
+	}
+
+	private int nodeEntry(int graph, int node) {
+		int entry = graphEntry(graph);
+		if (node < 0 || node >= buffer.getInt(entry + 4))
+			throw new IndexOutOfBoundsException("No node " + node + " in graph " + graph);
+		return (int) (buffer.getLong(entry + 16) + (long) node * NODE_ENTRY);
+	}
+
+	/**
+	 * Yields the number of graphs, that is, of dot files.
+	 */
+	public int graphCount() {
+		return graphs;
+	}
+
+	/**
+	 * Yields the name of the dot file of the given graph.
+	 */
+	public String graphName(int graph) {
+		return string(buffer.getInt(graphEntry(graph)));
+	}
+
+	/**
+	 * Yields the index of the graph dumped in the given dot file, or
+	 * {@code -1} if there is none.
+	 */
+	public int findGraph(String name) {
+		for (int g = 0; g < graphs; g++)
+			if (graphName(g).equals(name))
+				return g;
+		return -1;
+	}
+
+	public int nodeCount(int graph) {
+		return buffer.getInt(graphEntry(graph) + 4);
+	}
+
+	/**
+	 * Yields the identifier of the given node in the dot file (e.g.,
+	 * {@code node3}).
+	 */
+	public String nodeId(int graph, int node) {
+		return string(buffer.getInt(nodeEntry(graph, node)));
+	}
+
+	/**
+	 * Yields the (html-escaped) statement of the given node.
+	 */
+	public String statement(int graph, int node) {
+		return string(buffer.getInt(nodeEntry(graph, node) + 8));
+	}
+
+	/**
+	 * Yields the (html-escaped) abstract state of the given node, or
+	 * {@code null} if it has none.
+	 */
+	public String state(int graph, int node) {
+		return string(buffer.getInt(nodeEntry(graph, node) + 12));
+	}
+
+	/**
+	 * Yields the abstract state of the node with the given identifier, or
+	 * {@code null} if there is no such node.
+	 */
+	public String stateOf(String graphName, String nodeId) {
+		int graph = findGraph(graphName);
+		if (graph < 0)
+			return null;
+		int nodes = nodeCount(graph);
+		// nodes are numbered in order by LiSA, so the index in the identifier
+		// is tried first
+		if (nodeId.startsWith("node"))
+			try {
+				int guess = Integer.parseInt(nodeId.substring(4));
+				if (guess < nodes && nodeId(graph, guess).equals(nodeId))
+					return state(graph, guess);
+			} catch (NumberFormatException e) {
+				// not a numbered node
+			}
+		for (int n = 0; n < nodes; n++)
+			if (nodeId(graph, n).equals(nodeId))
+				return state(graph, n);
+		return null;
+	}
+
+	/**
+	 * Writes the dot file of the given graph.
+	 */
+	public void toDot(int graph, Writer writer) throws IOException {
+		int entry = graphEntry(graph);
+		int lines = buffer.getInt(entry + 8);
+		long offset = buffer.getLong(entry + 24);
+		for (int l = 0; l < lines; l++) {
+			if (l > 0)
+				writer.write('\n');
+			int line = (int) (offset + (long) l * LINE_ENTRY);
+			int a = buffer.getInt(line + 4);
+			switch (buffer.getInt(line)) {
+			case NODE:
+				int node = nodeEntry(graph, a);
+				String state = string(buffer.getInt(node + 12));
+				writer.write("\t\"" + string(buffer.getInt(node)) + "\" [" + string(buffer.getInt(node + 4))
+						+ "label=<" + string(buffer.getInt(node + 8)) + (state == null ? "" : state) + ">];");
+				break;
+			case EDGE:
+				writer.write("\t\"" + string(a) + "\" -> \"" + string(buffer.getInt(line + 8)) + "\" ["
+						+ string(buffer.getInt(line + 12)) + "];");
+				break;
+			default:
+				writer.write(string(a));
+			}
+		}
+	}
+
+	/**
+	 * Writes all the dot files, together with a {@code report.json} listing
+	 * them, to the given directory.
+	 */
+	public void toDot(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		List<String> names = new ArrayList<>();
+		for (int g = 0; g < graphs; g++) {
+			String name = graphName(g);
+			names.add(name);
+			try (Writer writer = Files.newBufferedWriter(directory.resolve(name), StandardCharsets.UTF_8)) {
+				toDot(g, writer);
+			}
+		}
+
+		try (Writer writer = Files.newBufferedWriter(directory.resolve("report.json"), StandardCharsets.UTF_8)) {
+			new JsonReport(Collections.emptyList(), names).dump(writer);
+		}
+	}
+
+	/**
+	 * Builds a binary results file graph by graph: strings are interned as
+	 * they are added, and graphs only keep the indexes of their strings.
+	 */
+	static final class Encoder {
+
+		private final Map<String, Integer> strings = new HashMap<>();
+		private final List<byte[]> data = new ArrayList<>();
+		private final List<int[]> graphs = new ArrayList<>();
+		private final List<List<int[]>> nodes = new ArrayList<>();
+		private final List<List<int[]>> lines = new ArrayList<>();
+
+		private int intern(String s) {
+			return strings.computeIfAbsent(s, k -> {
+				data.add(k.getBytes(StandardCharsets.UTF_8));
+				return data.size() - 1;
+			});
+		}
+
+		/**
+		 * Starts a new graph, to be dumped in the dot file with the given
+		 * name: the lines added next belong to it.
+		 */
+		void graph(String name) {
+			graphs.add(new int[] { intern(name) });
+			nodes.add(new ArrayList<>());
+			lines.add(new ArrayList<>());
+		}
+
+		/**
+		 * Adds a graph with the given dot file name and content, as serialized
+		 * by LiSA. Nodes are split into statement and state at the first line
+		 * break of their label, so that the state can be queried.
+		 */
+		void dot(String name, String content) {
+			graph(name);
+			for (String line : content.split("\n", -1)) {
+				Matcher node = NODE_LINE.matcher(line);
+				Matcher edge = EDGE_LINE.matcher(line);
+				if (node.matches()) {
+					String label = node.group(3);
+					int state = label.indexOf(LINE_BREAK);
+					node(node.group(1), node.group(2), state < 0 ? label : label.substring(0, state),
+							state < 0 ? null : label.substring(state));
+				} else if (edge.matches())
+					edge(edge.group(1), edge.group(2), edge.group(3));
+				else
+					raw(line);
+			}
+		}
+
+		/**
+		 * Adds a line that is written back verbatim.
+		 */
+		void raw(String line) {
+			current(lines).add(new int[] { RAW, intern(line), 0, 0 });
+		}
+
+		/**
+		 * Adds a node, whose (html-escaped) state can be {@code null}.
+		 */
+		void node(String id, String attributes, String statement, String state) {
+			List<int[]> graphNodes = current(nodes);
+			current(lines).add(new int[] { NODE, graphNodes.size(), 0, 0 });
+			graphNodes.add(new int[] { intern(id), intern(attributes), intern(statement),
+					state == null ? NONE : intern(state) });
+		}
+
+		void edge(String source, String destination, String attributes) {
+			current(lines).add(new int[] { EDGE, intern(source), intern(destination), intern(attributes) });
+		}
+
+		private static List<int[]> current(List<List<int[]>> records) {
+			if (records.isEmpty())
+				throw new IllegalStateException("No graph has been started");
+			return records.get(records.size() - 1);
+		}
+
+		/**
+		 * Writes the binary results file.
+		 */
+		void write(OutputStream stream) throws IOException {
+			long offset = HEADER + (long) graphs.size() * GRAPH_ENTRY;
+			long[] nodeOffsets = new long[graphs.size()];
+			long[] lineOffsets = new long[graphs.size()];
+			for (int g = 0; g < graphs.size(); g++) {
+				nodeOffsets[g] = offset;
+				offset += (long) nodes.get(g).size() * NODE_ENTRY;
+				lineOffsets[g] = offset;
+				offset += (long) lines.get(g).size() * LINE_ENTRY;
+			}
+			long stringIndex = offset;
+			long stringData = stringIndex + (long) data.size() * STRING_ENTRY;
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(graphs.size());
+			out.writeInt(data.size());
+			out.writeLong(stringIndex);
+			out.writeLong(stringData);
+
+			for (int g = 0; g < graphs.size(); g++) {
+				out.writeInt(graphs.get(g)[0]);
+				out.writeInt(nodes.get(g).size());
+				out.writeInt(lines.get(g).size());
+				out.writeInt(0);
+				out.writeLong(nodeOffsets[g]);
+				out.writeLong(lineOffsets[g]);
+			}
+
+			for (int g = 0; g < graphs.size(); g++) {
+				for (int[] node : nodes.get(g))
+					for (int field : node)
+						out.writeInt(field);
+				for (int[] line : lines.get(g))
+					for (int field : line)
+						out.writeInt(field);
+			}
+
+			int position = 0;
+			for (byte[] bytes : data) {
+				out.writeInt(position);
+				out.writeInt(bytes.length);
+				position += bytes.length;
+			}
+			for (byte[] bytes : data)
+				out.write(bytes);
+			out.flush();
+		}
+	}
+}
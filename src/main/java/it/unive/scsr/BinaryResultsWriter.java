@@ -0,0 +1,135 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.CFGWithAnalysisResults;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.value.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.outputs.DotCFG;
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.file.FileManager;
+
+/**
+ * A semantic check that raises no warnings, and instead encodes the results
+ * of the analysis into a {@link BinaryResults} file as each CFG is visited,
+ * so that they can be stored without enabling
+ * {@link it.unive.lisa.LiSAConfiguration#setDumpAnalysis(boolean)}. Each
+ * result of a CFG is serialized by LiSA's own {@link DotCFG} and
+ * {@link FileManager}, as the dump would, into a temporary directory, from
+ * which it is encoded and deleted right away. The binary file is written once
+ * all CFGs have been visited.
+ */
+public class BinaryResultsWriter<A extends AbstractState<A, H, V, T>,
+		H extends HeapDomain<H>,
+		V extends ValueDomain<V>,
+		T extends TypeDomain<T>> implements SemanticCheck<A, H, V, T> {
+
+	private final Path file;
+	private BinaryResults.Encoder encoder;
+	private Path tmp;
+	private FileManager files;
+
+	/**
+	 * Builds a check that writes the results to the given file.
+	 */
+	public BinaryResultsWriter(Path file) {
+		this.file = file;
+	}
+
+	@Override
+	public synchronized void beforeExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+		encoder = new BinaryResults.Encoder();
+		try {
+			tmp = Files.createTempDirectory("binary-results-");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to create a temporary directory", e);
+		}
+		files = new FileManager(tmp.toString());
+	}
+
+	@Override
+	public synchronized void afterExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+		try {
+			Files.deleteIfExists(tmp);
+			if (file.getParent() != null)
+				Files.createDirectories(file.getParent());
+			try (OutputStream out = Files.newOutputStream(file)) {
+				encoder.write(out);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to write " + file, e);
+		} finally {
+			encoder = null;
+			files = null;
+		}
+	}
+
+	@Override
+	public boolean visitCompilationUnit(CheckToolWithAnalysisResults<A, H, V, T> tool, CompilationUnit unit) {
+		return true;
+	}
+
+	@Override
+	public void visitGlobal(CheckToolWithAnalysisResults<A, H, V, T> tool, Unit unit, Global global,
+			boolean instance) {
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph) {
+		Collection<CFGWithAnalysisResults<A, H, V, T>> results = tool.getResultOf(graph);
+		// the same name LiSA gives to the dump
+		String name = "analysis___" + graph.getDescriptor().getFullSignatureWithParNames();
+		int index = 0;
+		for (CFGWithAnalysisResults<A, H, V, T> result : results) {
+			String suffix = results.size() == 1 ? "" : "_" + index++;
+			try {
+				encode(result, name + suffix);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Unable to serialize the results of " + graph, e);
+			}
+		}
+		return true;
+	}
+
+	private synchronized void encode(CFGWithAnalysisResults<A, H, V, T> result, String name) throws IOException {
+		Set<String> before = new HashSet<>(files.createdFiles());
+		try (Writer writer = files.mkDotFile(name)) {
+			DotCFG.fromCFG(result, st -> result.getAnalysisStateAfter(st).representation().toString())
+					.dumpDot(writer);
+		}
+		for (String created : files.createdFiles())
+			if (!before.contains(created)) {
+				Path dot = tmp.resolve(created);
+				encoder.dot(created, new String(Files.readAllBytes(dot), StandardCharsets.UTF_8));
+				Files.delete(dot);
+			}
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Statement node) {
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Edge edge) {
+		return true;
+	}
+}
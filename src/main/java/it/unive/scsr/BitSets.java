@@ -0,0 +1,36 @@
+package it.unive.scsr;
+
+import java.util.BitSet;
+
+/**
+ * Queries on {@link BitSet}s that the bit-vector domains need without
+ * allocating the temporary sets that the {@link BitSet} API would require.
+ */
+final class BitSets {
+
+	private BitSets() {
+	}
+
+	/**
+	 * Yields whether every bit of {@code subset} is also set in {@code set}.
+	 */
+	static boolean isSubset(BitSet subset, BitSet set) {
+		if (subset.length() > set.length())
+			return false;
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1))
+			if (!set.get(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Yields whether the given sets have no bit in common, except possibly
+	 * {@code allowed}.
+	 */
+	static boolean disjointExcept(BitSet first, BitSet second, int allowed) {
+		for (int i = first.nextSetBit(0); i >= 0; i = first.nextSetBit(i + 1))
+			if (i != allowed && second.get(i))
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,245 @@
+package it.unive.scsr;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A bit-vector implementation of the available expressions analysis. It
+ * computes the same information as
+ * {@code DefiniteForwardDataflowDomain<AvailableExpressionsSolution>}, but
+ * each candidate expression of a CFG is given a dense index (see
+ * {@link ExpressionUniverse}) and the set of available expressions is stored
+ * as a {@link BitSet}: the must-lub is a word-wise and, and comparing two
+ * states is a word compare instead of a structural comparison of expression
+ * trees. Sets are never modified once they belong to a state, so operations
+ * that do not change the available expressions yield an existing state
+ * instead of copying its set, and consecutive nodes share their storage.
+ */
+public class BitVectorAvailableExpressions extends BaseLattice<BitVectorAvailableExpressions>
+		implements ValueDomain<BitVectorAvailableExpressions> {
+
+	private final Map<CFG, ExpressionUniverse> universes;
+	private final ExpressionUniverse universe;
+	private final BitSet available;
+	private final boolean isTop;
+	private final boolean isBottom;
+
+	public BitVectorAvailableExpressions() {
+		this(new HashMap<>(), null, new BitSet(), true, false);
+	}
+
+	private BitVectorAvailableExpressions(Map<CFG, ExpressionUniverse> universes, ExpressionUniverse universe,
+			BitSet available, boolean isTop, boolean isBottom) {
+		this.universes = universes;
+		this.universe = universe;
+		this.available = available;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private BitVectorAvailableExpressions mk(ExpressionUniverse universe, BitSet available) {
+		return new BitVectorAvailableExpressions(universes, universe, available, false, false);
+	}
+
+	private ExpressionUniverse universeOf(ProgramPoint pp) {
+		if (universe != null)
+			return universe;
+		return universes.computeIfAbsent(pp.getCFG(), cfg -> new ExpressionUniverse());
+	}
+
+	private ExpressionUniverse common(BitVectorAvailableExpressions other) {
+		return universe != null ? universe : other.universe;
+	}
+
+	private static BitSet align(BitVectorAvailableExpressions other, ExpressionUniverse target) {
+		if (other.universe == target || other.universe == null)
+			return other.available;
+
+		// the two states come from different universes: this can only happen
+		// when states of different CFGs get mixed, so we pay the translation
+		BitSet translated = new BitSet();
+		for (int i = other.available.nextSetBit(0); i >= 0; i = other.available.nextSetBit(i + 1))
+			translated.set(target.indexOf(other.universe.get(i)));
+		return translated;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		ExpressionUniverse universe = universeOf(pp);
+		int generated = AvailableExpressionsSolution.filter(expression) ? universe.indexOf(expression) : -1;
+
+		BitSet killed = universe.mentioning(id);
+		if (universe == this.universe && !isTop && !isBottom && !killed.intersects(available)
+				&& (generated < 0 || killed.get(generated) || available.get(generated)))
+			return this;
+
+		BitSet updated = (BitSet) available.clone();
+		updated.andNot(killed);
+		if (generated >= 0 && !killed.get(generated))
+			updated.set(generated);
+
+		return mk(universe, updated);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (!AvailableExpressionsSolution.filter(expression))
+			return isTop || isBottom ? mk(universe, available) : this;
+
+		ExpressionUniverse universe = universeOf(pp);
+		int generated = universe.indexOf(expression);
+		if (universe == this.universe && !isTop && !isBottom && available.get(generated))
+			return this;
+
+		BitSet updated = (BitSet) available.clone();
+		updated.set(generated);
+		return mk(universe, updated);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions assume(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop || isBottom || universe == null || !universe.mentioning(id).intersects(available))
+			return this;
+
+		BitSet updated = (BitSet) available.clone();
+		updated.andNot(universe.mentioning(id));
+		return mk(universe, updated);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public BitVectorAvailableExpressions pushScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		BitSet updated = new BitSet();
+		for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1))
+			updated.set(universe.indexOf((ValueExpression) universe.get(i).pushScope(token)));
+
+		return mk(universe, updated);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions popScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		BitSet updated = new BitSet();
+		for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1))
+			updated.set(universe.indexOf((ValueExpression) universe.get(i).popScope(token)));
+
+		return mk(universe, updated);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions top() {
+		return new BitVectorAvailableExpressions(universes, null, new BitSet(), true, false);
+	}
+
+	@Override
+	public BitVectorAvailableExpressions bottom() {
+		return new BitVectorAvailableExpressions(universes, null, new BitSet(), false, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	protected BitVectorAvailableExpressions lubAux(BitVectorAvailableExpressions other) throws SemanticException {
+		ExpressionUniverse universe = common(other);
+		BitSet aligned = align(other, universe);
+		if (universe == this.universe && BitSets.isSubset(available, aligned))
+			return this;
+		if (universe == other.universe && BitSets.isSubset(aligned, available))
+			return other;
+
+		BitSet intersection = (BitSet) available.clone();
+		intersection.and(aligned);
+		return mk(universe, intersection);
+	}
+
+	@Override
+	protected BitVectorAvailableExpressions wideningAux(BitVectorAvailableExpressions other)
+			throws SemanticException {
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(BitVectorAvailableExpressions other) throws SemanticException {
+		// a must-analysis is more precise when it has more elements
+		return BitSets.isSubset(align(other, common(other)), available);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(available, isTop, isBottom);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BitVectorAvailableExpressions other = (BitVectorAvailableExpressions) obj;
+		return isTop == other.isTop && isBottom == other.isBottom
+				&& available.equals(align(other, common(other)));
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop)
+			return new StringRepresentation(Lattice.TOP_STRING);
+		if (isBottom)
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+
+		Set<ValueExpression> elements = new HashSet<>();
+		for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1))
+			elements.add(universe.get(i));
+		return new SetRepresentation(elements, e -> new StringRepresentation(e));
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
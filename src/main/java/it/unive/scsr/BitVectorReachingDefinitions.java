@@ -0,0 +1,270 @@
+package it.unive.scsr;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.SetRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A bit-vector implementation of the reaching definitions analysis. It
+ * computes the same information as
+ * {@code PossibleForwardDataflowDomain<ReachingDefinitions>}, but each
+ * definition site of a CFG is given a dense index (see
+ * {@link DefinitionSites}) and the set of reaching definitions is stored as a
+ * {@link BitSet}, so that gen, kill and lub become word operations. Since
+ * the sites are also bucketed by identifier, killing the definitions of a
+ * variable is a single mask operation, and scoping is performed once per
+ * variable instead of once per definition. Sets are never modified once they
+ * belong to a state, so operations that do not change the reaching
+ * definitions yield an existing state instead of copying its set, and
+ * consecutive nodes share their storage.
+ */
+public class BitVectorReachingDefinitions extends BaseLattice<BitVectorReachingDefinitions>
+		implements ValueDomain<BitVectorReachingDefinitions> {
+
+	private final Map<CFG, DefinitionSites> universes;
+	private final DefinitionSites sites;
+	private final BitSet definitions;
+	private final boolean isTop;
+	private final boolean isBottom;
+
+	public BitVectorReachingDefinitions() {
+		this(new HashMap<>(), null, new BitSet(), true, false);
+	}
+
+	private BitVectorReachingDefinitions(Map<CFG, DefinitionSites> universes, DefinitionSites sites,
+			BitSet definitions, boolean isTop, boolean isBottom) {
+		this.universes = universes;
+		this.sites = sites;
+		this.definitions = definitions;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private BitVectorReachingDefinitions mk(DefinitionSites sites, BitSet definitions) {
+		return new BitVectorReachingDefinitions(universes, sites, definitions, false, false);
+	}
+
+	private DefinitionSites sitesOf(ProgramPoint pp) {
+		if (sites != null)
+			return sites;
+		return universes.computeIfAbsent(pp.getCFG(), cfg -> new DefinitionSites());
+	}
+
+	// whether this state holds definitions of a CFG: top, bottom and the
+	// states created before any assignment have no sites to look up
+	private boolean bound() {
+		return !isTop && !isBottom && sites != null;
+	}
+
+	private DefinitionSites common(BitVectorReachingDefinitions other) {
+		return sites != null ? sites : other.sites;
+	}
+
+	private static BitSet align(BitVectorReachingDefinitions other, DefinitionSites target) {
+		if (other.sites == target || other.sites == null)
+			return other.definitions;
+
+		// the two states come from different universes: this can only happen
+		// when states of different CFGs get mixed, so we pay the translation
+		BitSet translated = new BitSet();
+		for (int i = other.definitions.nextSetBit(0); i >= 0; i = other.definitions.nextSetBit(i + 1)) {
+			ReachingDefinitions rd = other.sites.get(i);
+			translated.set(target.indexOf(rd.getIdentifier(), rd.getLocation()));
+		}
+		return translated;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		DefinitionSites sites = sitesOf(pp);
+		int generated = sites.indexOf(id, pp.getLocation());
+		if (sites == this.sites && !isTop && !isBottom && definitions.get(generated)
+				&& BitSets.disjointExcept(sites.definitionsOf(id), definitions, generated))
+			// the only definition of id is already the generated one
+			return this;
+
+		BitSet updated = (BitSet) definitions.clone();
+		updated.andNot(sites.definitionsOf(id));
+		updated.set(generated);
+		return mk(sites, updated);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		// expressions neither generate nor kill definitions
+		if (isTop || isBottom)
+			return mk(sites, definitions);
+		return this;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions assume(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		return this;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions forgetIdentifier(Identifier id) throws SemanticException {
+		if (!bound() || !sites.definitionsOf(id).intersects(definitions))
+			return this;
+
+		BitSet updated = (BitSet) definitions.clone();
+		updated.andNot(sites.definitionsOf(id));
+		return mk(sites, updated);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public BitVectorReachingDefinitions pushScope(ScopeToken token) throws SemanticException {
+		if (!bound())
+			return this;
+
+		BitSet updated = new BitSet();
+		// scoping creates new identifiers, so we only visit the ones that
+		// existed before starting
+		int count = sites.identifiers();
+		for (int k = 0; k < count; k++) {
+			Identifier id = sites.identifier(k);
+			BitSet bucket = sites.definitionsOf(id);
+			if (!bucket.intersects(definitions))
+				continue;
+
+			rescope(bucket, (Identifier) id.pushScope(token), updated);
+		}
+
+		return mk(sites, updated);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions popScope(ScopeToken token) throws SemanticException {
+		if (!bound())
+			return this;
+
+		BitSet updated = new BitSet();
+		int count = sites.identifiers();
+		for (int k = 0; k < count; k++) {
+			Identifier id = sites.identifier(k);
+			if (!(id instanceof OutOfScopeIdentifier))
+				continue;
+
+			BitSet bucket = sites.definitionsOf(id);
+			if (!bucket.intersects(definitions))
+				continue;
+
+			rescope(bucket, (Identifier) id.popScope(token), updated);
+		}
+
+		return mk(sites, updated);
+	}
+
+	private void rescope(BitSet bucket, Identifier scoped, BitSet target) {
+		for (int i = bucket.nextSetBit(0); i >= 0; i = bucket.nextSetBit(i + 1))
+			if (definitions.get(i))
+				target.set(sites.indexOf(scoped, sites.get(i).getLocation()));
+	}
+
+	@Override
+	public BitVectorReachingDefinitions top() {
+		return new BitVectorReachingDefinitions(universes, null, new BitSet(), true, false);
+	}
+
+	@Override
+	public BitVectorReachingDefinitions bottom() {
+		return new BitVectorReachingDefinitions(universes, null, new BitSet(), false, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	protected BitVectorReachingDefinitions lubAux(BitVectorReachingDefinitions other) throws SemanticException {
+		DefinitionSites sites = common(other);
+		BitSet aligned = align(other, sites);
+		if (sites == this.sites && BitSets.isSubset(aligned, definitions))
+			return this;
+		if (sites == other.sites && BitSets.isSubset(definitions, aligned))
+			return other;
+
+		BitSet union = (BitSet) definitions.clone();
+		union.or(aligned);
+		return mk(sites, union);
+	}
+
+	@Override
+	protected BitVectorReachingDefinitions wideningAux(BitVectorReachingDefinitions other)
+			throws SemanticException {
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(BitVectorReachingDefinitions other) throws SemanticException {
+		return BitSets.isSubset(definitions, align(other, common(other)));
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(definitions, isTop, isBottom);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BitVectorReachingDefinitions other = (BitVectorReachingDefinitions) obj;
+		return isTop == other.isTop && isBottom == other.isBottom
+				&& definitions.equals(align(other, common(other)));
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop)
+			return new StringRepresentation(Lattice.TOP_STRING);
+		if (isBottom)
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+
+		Set<ReachingDefinitions> elements = new HashSet<>();
+		for (int i = definitions.nextSetBit(0); i >= 0; i = definitions.nextSetBit(i + 1))
+			elements.add(sites.get(i));
+		return new SetRepresentation(elements, ReachingDefinitions::representation);
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
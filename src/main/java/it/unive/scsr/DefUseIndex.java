@@ -0,0 +1,298 @@
+package it.unive.scsr;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.CFGWithAnalysisResults;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.value.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+
+/**
+ * Def-use and use-def chains computed from the results of
+ * {@link ReachingDefinitions}. Statements are numbered densely, and both
+ * relations are stored in compressed sparse row layout: the definitions
+ * reaching the uses of statement {@code i} are
+ * {@code defs[defStart[i] .. defStart[i + 1])}, and symmetrically for uses.
+ * Queries cost a lookup plus the size of their output, and the index holds no
+ * reference to the per-node sets of the analysis, which can be released once
+ * it is built. Use a {@link Builder} as a semantic check of an analysis over
+ * {@code PossibleForwardDataflowDomain<ReachingDefinitions>} to build it.
+ */
+public class DefUseIndex {
+
+	private final Statement[] statements;
+	private final Map<Statement, Integer> indexes;
+	private final int[] defStart;
+	private final int[] defs;
+	private final int[] useStart;
+	private final int[] uses;
+
+	private DefUseIndex(Statement[] statements, Map<Statement, Integer> indexes, int[] defStart, int[] defs,
+			int[] useStart, int[] uses) {
+		this.statements = statements;
+		this.indexes = indexes;
+		this.defStart = defStart;
+		this.defs = defs;
+		this.useStart = useStart;
+		this.uses = uses;
+	}
+
+	/**
+	 * Yields the number of statements in the index.
+	 */
+	public int size() {
+		return statements.length;
+	}
+
+	/**
+	 * Yields the index of the given statement, or {@code -1} if it is not
+	 * part of the analyzed program.
+	 */
+	public int indexOf(Statement st) {
+		Integer index = indexes.get(st);
+		return index == null ? -1 : index;
+	}
+
+	public Statement get(int index) {
+		return statements[index];
+	}
+
+	/**
+	 * Yields the statements whose definitions reach the uses of the given
+	 * one (use-def chains).
+	 */
+	public List<Statement> definitionsReaching(Statement use) {
+		int i = indexOf(use);
+		return i < 0 ? Collections.emptyList() : slice(defs, defStart[i], defStart[i + 1]);
+	}
+
+	/**
+	 * Yields the statements using the definition of the given one (def-use
+	 * chains).
+	 */
+	public List<Statement> usesOf(Statement def) {
+		int i = indexOf(def);
+		return i < 0 ? Collections.emptyList() : slice(uses, useStart[i], useStart[i + 1]);
+	}
+
+	/**
+	 * Yields the raw use-def relation: the indexes of the definitions reaching
+	 * statement {@code i} are stored in {@code getDefs()} from
+	 * {@code getDefStart()[i]} (included) to {@code getDefStart()[i + 1]}
+	 * (excluded). The arrays are shared and must not be modified.
+	 */
+	public int[] getDefStart() {
+		return defStart;
+	}
+
+	public int[] getDefs() {
+		return defs;
+	}
+
+	/**
+	 * Yields the raw def-use relation, with the same layout of
+	 * {@link #getDefStart()}.
+	 */
+	public int[] getUseStart() {
+		return useStart;
+	}
+
+	public int[] getUses() {
+		return uses;
+	}
+
+	private List<Statement> slice(int[] targets, int from, int to) {
+		return new AbstractList<Statement>() {
+
+			@Override
+			public Statement get(int index) {
+				if (index < 0 || index >= to - from)
+					throw new IndexOutOfBoundsException(String.valueOf(index));
+				return statements[targets[from + index]];
+			}
+
+			@Override
+			public int size() {
+				return to - from;
+			}
+		};
+	}
+
+	/**
+	 * A semantic check that builds a {@link DefUseIndex} from the results of
+	 * an analysis whose value domain is
+	 * {@code PossibleForwardDataflowDomain<ReachingDefinitions>}. It raises no
+	 * warnings.
+	 */
+	public static class Builder<A extends AbstractState<A, H, V, T>,
+			H extends HeapDomain<H>,
+			V extends ValueDomain<V>,
+			T extends TypeDomain<T>> implements SemanticCheck<A, H, V, T> {
+
+		private final List<Statement> statements = new ArrayList<>();
+		private final Map<Statement, Integer> indexes = new HashMap<>();
+		// the statement at each location, built once per CFG
+		private final Map<CFG, Map<CodeLocation, Statement>> locations = new HashMap<>();
+		// the pairs (use, def), two entries per pair
+		private int[] pairs = new int[16];
+		private int size;
+
+		private synchronized int indexOf(Statement st) {
+			Integer index = indexes.get(st);
+			if (index != null)
+				return index;
+			int fresh = statements.size();
+			statements.add(st);
+			indexes.put(st, fresh);
+			return fresh;
+		}
+
+		private synchronized Map<CodeLocation, Statement> sitesOf(CFG graph) {
+			Map<CodeLocation, Statement> result = locations.get(graph);
+			if (result == null) {
+				result = new HashMap<>();
+				for (Statement st : graph.getNodes())
+					result.put(st.getLocation(), st);
+				locations.put(graph, result);
+			}
+			return result;
+		}
+
+		private synchronized void add(int use, int def) {
+			if (size + 2 > pairs.length)
+				pairs = Arrays.copyOf(pairs, pairs.length * 2);
+			pairs[size++] = use;
+			pairs[size++] = def;
+		}
+
+		/**
+		 * Builds the index out of what has been visited so far.
+		 */
+		public synchronized DefUseIndex build() {
+			int n = statements.size();
+			int[] defStart = new int[n + 1];
+			int[] useStart = new int[n + 1];
+			for (int p = 0; p < size; p += 2) {
+				defStart[pairs[p] + 1]++;
+				useStart[pairs[p + 1] + 1]++;
+			}
+			for (int i = 0; i < n; i++) {
+				defStart[i + 1] += defStart[i];
+				useStart[i + 1] += useStart[i];
+			}
+
+			int[] defs = new int[size / 2];
+			int[] uses = new int[size / 2];
+			int[] defFill = Arrays.copyOf(defStart, n);
+			int[] useFill = Arrays.copyOf(useStart, n);
+			for (int p = 0; p < size; p += 2) {
+				defs[defFill[pairs[p]]++] = pairs[p + 1];
+				uses[useFill[pairs[p + 1]]++] = pairs[p];
+			}
+
+			return new DefUseIndex(statements.toArray(new Statement[n]), new HashMap<>(indexes), defStart, defs,
+					useStart, uses);
+		}
+
+		@Override
+		public void beforeExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+		}
+
+		@Override
+		public void afterExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+		}
+
+		@Override
+		public boolean visitCompilationUnit(CheckToolWithAnalysisResults<A, H, V, T> tool, CompilationUnit unit) {
+			return true;
+		}
+
+		@Override
+		public void visitGlobal(CheckToolWithAnalysisResults<A, H, V, T> tool, Unit unit, Global global,
+				boolean instance) {
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph) {
+			sitesOf(graph);
+			return true;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Statement node) {
+			int use = indexOf(node);
+			Set<String> read = new HashSet<>();
+			collectUses(node, read);
+			if (read.isEmpty())
+				return true;
+
+			Map<CodeLocation, Statement> sites = sitesOf(graph);
+			Set<Statement> reaching = new HashSet<>();
+			for (CFGWithAnalysisResults<A, H, V, T> result : tool.getResultOf(graph)) {
+				A state = result.getAnalysisStateBefore(node).getState();
+				if (!(state instanceof SimpleAbstractState))
+					continue;
+				Object value = ((SimpleAbstractState<?, ?, ?>) state).getValueState();
+				if (!(value instanceof PossibleForwardDataflowDomain))
+					continue;
+				for (Object element : ((PossibleForwardDataflowDomain<?>) value).getDataflowElements())
+					if (element instanceof ReachingDefinitions) {
+						ReachingDefinitions rd = (ReachingDefinitions) element;
+						Statement def = sites.get(rd.getLocation());
+						if (def != null && read.contains(rd.getIdentifier().getName()))
+							reaching.add(def);
+					}
+			}
+
+			for (Statement def : reaching)
+				add(use, indexOf(def));
+			return true;
+		}
+
+		@Override
+		public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Edge edge) {
+			return true;
+		}
+
+		/**
+		 * Collects the names of the variables read by the given statement:
+		 * all the ones it contains, except for the target of an assignment.
+		 */
+		static void collectUses(Statement st, Set<String> names) {
+			if (st instanceof Assignment) {
+				Assignment assignment = (Assignment) st;
+				if (!(assignment.getLeft() instanceof VariableRef))
+					collectUses(assignment.getLeft(), names);
+				collectUses(assignment.getRight(), names);
+			} else if (st instanceof VariableRef)
+				names.add(((VariableRef) st).getName());
+			else if (st instanceof NaryExpression)
+				for (Expression sub : ((NaryExpression) st).getSubExpressions())
+					collectUses(sub, names);
+		}
+	}
+}
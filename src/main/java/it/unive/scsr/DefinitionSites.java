@@ -0,0 +1,72 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.program.cfg.CodeLocation;
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * The universe of definition sites of a single CFG. Each (identifier,
+ * location) pair is given a dense index the first time it is seen, so that
+ * sets of reaching definitions can be stored as bit vectors. Sites are also
+ * bucketed by identifier, so that all the definitions of a variable can be
+ * selected with a single mask.
+ */
+class DefinitionSites {
+
+	private static final BitSet NONE = new BitSet();
+
+	private final Map<ReachingDefinitions, Integer> indexes = new HashMap<>();
+	private final List<ReachingDefinitions> sites = new ArrayList<>();
+	private final Map<Identifier, BitSet> byIdentifier = new HashMap<>();
+	private final List<Identifier> identifiers = new ArrayList<>();
+
+	int indexOf(Identifier id, CodeLocation location) {
+		ReachingDefinitions rd = new ReachingDefinitions(id, location);
+		Integer index = indexes.get(rd);
+		if (index != null)
+			return index;
+
+		int fresh = sites.size();
+		sites.add(rd);
+		indexes.put(rd, fresh);
+
+		BitSet bucket = byIdentifier.get(id);
+		if (bucket == null) {
+			bucket = new BitSet();
+			byIdentifier.put(id, bucket);
+			identifiers.add(id);
+		}
+		bucket.set(fresh);
+		return fresh;
+	}
+
+	ReachingDefinitions get(int index) {
+		return sites.get(index);
+	}
+
+	int size() {
+		return sites.size();
+	}
+
+	/**
+	 * Yields the indexes of all the definition sites of the given identifier.
+	 * The returned set is owned by this universe and must not be modified.
+	 */
+	BitSet definitionsOf(Identifier id) {
+		BitSet bucket = byIdentifier.get(id);
+		return bucket == null ? NONE : bucket;
+	}
+
+	int identifiers() {
+		return identifiers.size();
+	}
+
+	Identifier identifier(int index) {
+		return identifiers.get(index);
+	}
+}
@@ -0,0 +1,411 @@
+package it.unive.scsr;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the files listed in two {@code report.json} files, as a faster
+ * alternative to {@code JsonReportComparer} that also reports what differs.
+ * Warnings are compared as a multiset, files that are not dot graphs byte by
+ * byte, and each dot graph is read line by line, without loading the file
+ * whole. Nodes are identified by their position in a canonical visit of the
+ * graph, as {@link AnalysisCache#canonicalOrder} does for CFGs, so that the
+ * comparison does not depend on how nodes are numbered or in which order
+ * nodes and edges are written, and edges by the positions of the nodes they
+ * connect. Files are compared in parallel, optionally stopping at the first
+ * mismatch, and every mismatch is reported as a {@link Difference}.
+ */
+public class DotReportComparer {
+
+	private static final Pattern FILES = Pattern.compile("\"files\"\\s*:\\s*\\[([^\\]]*)\\]");
+	private static final Pattern WARNINGS = Pattern.compile("\"warnings\"\\s*:\\s*\\[");
+	private static final Pattern STRING = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+	private static final Pattern NODE = Pattern.compile("^\\s*\"([^\"]+)\"\\s*\\[(.*?)label=<(.*)>\\];\\s*$");
+	private static final Pattern EDGE = Pattern.compile("^\\s*\"([^\"]+)\"\\s*->\\s*\"([^\"]+)\"\\s*\\[(.*)\\];\\s*$");
+
+	private static final String LINE_BREAK = "<BR/>";
+	private static final String STATE_SEPARATOR = LINE_BREAK + "{{";
+
+	/**
+	 * A mismatch between the two reports.
+	 */
+	public static final class Difference {
+
+		private final String file;
+		private final String element;
+		private final String expected;
+		private final String actual;
+
+		private Difference(String file, String element, String expected, String actual) {
+			this.file = file;
+			this.element = element;
+			this.expected = expected;
+			this.actual = actual;
+		}
+
+		/**
+		 * Yields the dot file where the mismatch is.
+		 */
+		public String getFile() {
+			return file;
+		}
+
+		/**
+		 * Yields the statement, edge or file that is different.
+		 */
+		public String getElement() {
+			return element;
+		}
+
+		/**
+		 * Yields the expected content of the element, or {@code null} if it
+		 * was not expected.
+		 */
+		public String getExpected() {
+			return expected;
+		}
+
+		/**
+		 * Yields the actual content of the element, or {@code null} if it is
+		 * missing.
+		 */
+		public String getActual() {
+			return actual;
+		}
+
+		@Override
+		public String toString() {
+			return file + ": " + element + "\n  expected: " + expected + "\n  actual:   " + actual;
+		}
+	}
+
+	private final int threads;
+	private final boolean failFast;
+
+	/**
+	 * Builds a comparer that uses the given number of threads, and that stops
+	 * at the first mismatching file if {@code failFast} is set.
+	 */
+	public DotReportComparer(int threads, boolean failFast) {
+		if (threads < 1)
+			throw new IllegalArgumentException("At least one thread is needed: " + threads);
+		this.threads = threads;
+		this.failFast = failFast;
+	}
+
+	/**
+	 * Compares the reports in the given directories, yielding the differences
+	 * found (an empty list if they are equal).
+	 */
+	public List<Difference> compare(Path expectedDir, Path actualDir) throws IOException {
+		Set<String> expectedFiles = filesOf(expectedDir.resolve("report.json"));
+		Set<String> actualFiles = filesOf(actualDir.resolve("report.json"));
+
+		List<Difference> differences = new ArrayList<>();
+		List<String> expectedWarnings = warningsOf(expectedDir.resolve("report.json"));
+		List<String> actualWarnings = warningsOf(actualDir.resolve("report.json"));
+		if (!expectedWarnings.equals(actualWarnings))
+			differences.add(new Difference("report.json", "warnings", String.join("\n", expectedWarnings),
+					String.join("\n", actualWarnings)));
+		for (String file : expectedFiles)
+			if (!actualFiles.contains(file))
+				differences.add(new Difference(file, "file", file, null));
+		for (String file : actualFiles)
+			if (!expectedFiles.contains(file))
+				differences.add(new Difference(file, "file", null, file));
+		if (failFast && !differences.isEmpty())
+			return differences;
+
+		AtomicBoolean stop = new AtomicBoolean();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<Difference>>> results = new ArrayList<>();
+			for (String file : expectedFiles) {
+				if (!actualFiles.contains(file))
+					continue;
+				results.add(executor.submit(() -> {
+					if (stop.get())
+						return Collections.emptyList();
+					List<Difference> found = file.endsWith(".dot")
+							? compareGraphs(file, expectedDir.resolve(file), actualDir.resolve(file))
+							: compareBytes(file, expectedDir.resolve(file), actualDir.resolve(file));
+					if (failFast && !found.isEmpty())
+						stop.set(true);
+					return found;
+				}));
+			}
+
+			for (Future<List<Difference>> result : results)
+				differences.addAll(result.get());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IllegalStateException("Comparison failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Comparison interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return differences;
+	}
+
+	/**
+	 * Yields the files listed in the given {@code report.json}.
+	 */
+	static Set<String> filesOf(Path report) throws IOException {
+		String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+		Set<String> files = new LinkedHashSet<>();
+		Matcher list = FILES.matcher(json);
+		if (list.find()) {
+			Matcher file = STRING.matcher(list.group(1));
+			while (file.find())
+				files.add(file.group(1).replace("\\\"", "\"").replace("\\\\", "\\"));
+		}
+		return files;
+	}
+
+	/**
+	 * Yields the warnings in the given {@code report.json}, sorted, each one
+	 * without the blanks between its tokens. The list is scanned rather than
+	 * matched with a regular expression since messages can contain brackets.
+	 */
+	static List<String> warningsOf(Path report) throws IOException {
+		String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+		List<String> warnings = new ArrayList<>();
+		Matcher list = WARNINGS.matcher(json);
+		if (!list.find())
+			return warnings;
+
+		StringBuilder warning = new StringBuilder();
+		int nesting = 0;
+		for (int i = list.end(); i < json.length(); i++) {
+			char c = json.charAt(i);
+			if (c == '"') {
+				int end = i + 1;
+				while (end < json.length() && json.charAt(end) != '"')
+					end += json.charAt(end) == '\\' ? 2 : 1;
+				end = Math.min(end, json.length() - 1);
+				warning.append(json, i, end + 1);
+				i = end;
+				continue;
+			}
+			if (Character.isWhitespace(c))
+				continue;
+			if (nesting == 0 && (c == ',' || c == ']')) {
+				if (warning.length() > 0)
+					warnings.add(warning.toString());
+				warning.setLength(0);
+				if (c == ']')
+					break;
+				continue;
+			}
+			if (c == '[' || c == '{')
+				nesting++;
+			else if (c == ']' || c == '}')
+				nesting--;
+			warning.append(c);
+		}
+		Collections.sort(warnings);
+		return warnings;
+	}
+
+	/**
+	 * A dot graph, with nodes in the order they are written: the statement of
+	 * each node together with its attributes, that tell entrypoints and
+	 * exitpoints apart, its state and its outgoing edges.
+	 */
+	private static final class Graph {
+		final List<String> ids = new ArrayList<>();
+		final Map<String, String> statements = new HashMap<>();
+		final Map<String, String> states = new HashMap<>();
+		final Map<String, List<String[]>> edges = new HashMap<>();
+		final Set<String> targets = new HashSet<>();
+
+		/**
+		 * Yields the nodes in a canonical order: a depth-first visit from the
+		 * entrypoints and the nodes without predecessors, sorted by statement,
+		 * following the edges of each node sorted by attributes (that is, by
+		 * kind) and by the statement of their destination, and then the
+		 * unreachable nodes sorted by statement. Ties, which only happen
+		 * between nodes with the same statement, are broken by the order of
+		 * the file.
+		 */
+		List<String> canonicalOrder() {
+			Map<String, Integer> written = new HashMap<>();
+			for (String id : ids)
+				written.put(id, written.size());
+			Comparator<String> byStatement = Comparator.comparing((String id) -> statements.get(id))
+					.thenComparing(written::get);
+			Comparator<String[]> byKind = Comparator.comparing((String[] edge) -> edge[1])
+					.thenComparing(edge -> edge[0], byStatement);
+
+			List<String> entries = new ArrayList<>();
+			for (String id : ids)
+				if (!targets.contains(id) || isEntry(statements.get(id)))
+					entries.add(id);
+			entries.sort(byStatement.reversed());
+
+			List<String> order = new ArrayList<>();
+			Set<String> visited = new HashSet<>();
+			Deque<String> stack = new ArrayDeque<>(entries);
+			while (!stack.isEmpty()) {
+				String id = stack.pop();
+				if (!visited.add(id))
+					continue;
+				order.add(id);
+				List<String[]> outgoing = edges.getOrDefault(id, Collections.emptyList());
+				outgoing.sort(byKind);
+				// pushed in reverse, so that the first edge is followed first
+				for (int i = outgoing.size() - 1; i >= 0; i--)
+					if (!visited.contains(outgoing.get(i)[0]))
+						stack.push(outgoing.get(i)[0]);
+			}
+
+			List<String> unreachable = new ArrayList<>();
+			for (String id : ids)
+				if (!visited.contains(id))
+					unreachable.add(id);
+			unreachable.sort(byStatement);
+			order.addAll(unreachable);
+			return order;
+		}
+
+		// entrypoints are black with a single border
+		private static boolean isEntry(String statement) {
+			return statement.contains("color=\"black\"") && !statement.contains("peripheries=");
+		}
+	}
+
+	private static Graph read(Path file) throws IOException {
+		Graph graph = new Graph();
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int nesting = 0;
+			while ((line = reader.readLine()) != null) {
+				String trimmed = line.trim();
+				// the legend carries no information about the analysis
+				if (trimmed.startsWith("subgraph")) {
+					nesting++;
+					continue;
+				}
+				if (nesting > 0) {
+					if (trimmed.equals("}"))
+						nesting--;
+					continue;
+				}
+
+				Matcher node = NODE.matcher(line);
+				if (node.matches()) {
+					String label = node.group(3);
+					int sep = label.indexOf(STATE_SEPARATOR);
+					String statement = sep < 0 ? label : label.substring(0, sep);
+					String state = sep < 0 ? "" : label.substring(sep + LINE_BREAK.length());
+					statement = unescape(statement) + " [" + node.group(2).replaceAll(",\\s*$", "") + "]";
+					graph.ids.add(node.group(1));
+					graph.statements.put(node.group(1), statement);
+					graph.states.put(node.group(1), unescape(state));
+					continue;
+				}
+
+				Matcher edge = EDGE.matcher(line);
+				if (edge.matches()) {
+					graph.edges.computeIfAbsent(edge.group(1), k -> new ArrayList<>())
+							.add(new String[] { edge.group(2), edge.group(3) });
+					graph.targets.add(edge.group(2));
+				}
+			}
+		}
+		return graph;
+	}
+
+	private static String unescape(String label) {
+		return label.replace(LINE_BREAK, "\n").replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+				.replace("&amp;", "&");
+	}
+
+	private static List<Difference> compareBytes(String name, Path expectedFile, Path actualFile)
+			throws IOException {
+		if (Arrays.equals(Files.readAllBytes(expectedFile), Files.readAllBytes(actualFile)))
+			return Collections.emptyList();
+		return Collections.singletonList(new Difference(name, "content", expectedFile.toString(), actualFile.toString()));
+	}
+
+	private static List<Difference> compareGraphs(String name, Path expectedFile, Path actualFile)
+			throws IOException {
+		Graph expected = read(expectedFile);
+		Graph actual = read(actualFile);
+		List<String> expectedOrder = expected.canonicalOrder();
+		List<String> actualOrder = actual.canonicalOrder();
+		List<Difference> differences = new ArrayList<>();
+
+		for (int i = 0; i < Math.max(expectedOrder.size(), actualOrder.size()); i++) {
+			String expectedStatement = i < expectedOrder.size() ? expected.statements.get(expectedOrder.get(i)) : null;
+			String actualStatement = i < actualOrder.size() ? actual.statements.get(actualOrder.get(i)) : null;
+			if (expectedStatement == null || !expectedStatement.equals(actualStatement)) {
+				// the graphs have different shapes, and nodes after this one
+				// cannot be matched
+				differences.add(new Difference(name, "node " + i, expectedStatement, actualStatement));
+				return differences;
+			}
+
+			String expectedState = expected.states.get(expectedOrder.get(i));
+			String actualState = actual.states.get(actualOrder.get(i));
+			if (!expectedState.equals(actualState))
+				differences.add(new Difference(name, expectedStatement + " (node " + i + ")", expectedState,
+						actualState));
+		}
+
+		Map<String, Integer> expectedEdges = edgesOf(expected, expectedOrder);
+		Map<String, Integer> actualEdges = edgesOf(actual, actualOrder);
+		for (Map.Entry<String, Integer> edge : expectedEdges.entrySet()) {
+			Integer other = actualEdges.get(edge.getKey());
+			if (!edge.getValue().equals(other))
+				differences.add(new Difference(name, edge.getKey(), "x" + edge.getValue(),
+						other == null ? null : "x" + other));
+		}
+		for (Map.Entry<String, Integer> edge : actualEdges.entrySet())
+			if (!expectedEdges.containsKey(edge.getKey()))
+				differences.add(new Difference(name, edge.getKey(), null, "x" + edge.getValue()));
+
+		return differences;
+	}
+
+	// the edges of the given graph, through the positions of the nodes they
+	// connect, with their multiplicity
+	private static Map<String, Integer> edgesOf(Graph graph, List<String> order) {
+		Map<String, Integer> positions = new HashMap<>();
+		for (String id : order)
+			positions.put(id, positions.size());
+		Map<String, Integer> edges = new TreeMap<>();
+		for (Map.Entry<String, List<String[]>> outgoing : graph.edges.entrySet())
+			for (String[] edge : outgoing.getValue())
+				edges.merge("node " + positions.get(outgoing.getKey()) + " -> node " + positions.get(edge[0]) + " ["
+						+ edge[1] + "]", 1, Integer::sum);
+		return edges;
+	}
+}
@@ -0,0 +1,57 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * The universe of candidate expressions of a single CFG, that is, the ones
+ * accepted by {@link AvailableExpressionsSolution#filter(ValueExpression)}.
+ * Each expression is given a dense index the first time it is seen, so that
+ * sets of available expressions can be stored as bit vectors, and the
+ * expressions mentioning each identifier are kept as a mask.
+ */
+class ExpressionUniverse {
+
+	private static final BitSet NONE = new BitSet();
+
+	private final Map<ValueExpression, Integer> indexes = new HashMap<>();
+	private final List<ValueExpression> expressions = new ArrayList<>();
+	private final Map<Identifier, BitSet> byOperand = new HashMap<>();
+
+	int indexOf(ValueExpression expression) {
+		Integer index = indexes.get(expression);
+		if (index != null)
+			return index;
+
+		int fresh = expressions.size();
+		expressions.add(expression);
+		indexes.put(expression, fresh);
+		for (Identifier id : AvailableExpressionsSolution.getIdentifierOperands(expression))
+			byOperand.computeIfAbsent(id, k -> new BitSet()).set(fresh);
+		return fresh;
+	}
+
+	ValueExpression get(int index) {
+		return expressions.get(index);
+	}
+
+	int size() {
+		return expressions.size();
+	}
+
+	/**
+	 * Yields the indexes of all the expressions mentioning the given
+	 * identifier. The returned set is owned by this universe and must not be
+	 * modified.
+	 */
+	BitSet mentioning(Identifier id) {
+		BitSet bucket = byOperand.get(id);
+		return bucket == null ? NONE : bucket;
+	}
+}
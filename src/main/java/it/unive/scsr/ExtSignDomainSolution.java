@@ -17,6 +17,91 @@ import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
 
 public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignDomainSolution> {
 
+	// ordinals of the values of Sign, used to index the tables below
+	static final byte BOT = 0, TOP = 1, POS = 2, NEG = 3, ZER = 4, POZ = 5, NEZ = 6;
+
+	// canonical instances, one for each value of Sign and indexed by ordinal
+	private static final ExtSignDomainSolution[] VALUES;
+
+	static {
+		Sign[] signs = Sign.values();
+		VALUES = new ExtSignDomainSolution[signs.length];
+		for (Sign sign : signs)
+			VALUES[sign.ordinal()] = new ExtSignDomainSolution(sign);
+	}
+
+	// the abstract operators, as tables indexed by the ordinals of the
+	// operands (left operand on rows, right operand on columns)
+
+	private static final byte[] MINUS = { BOT, TOP, NEG, POS, ZER, NEZ, POZ };
+
+	private static final byte[][] ADD = {
+			// _|_, top, +, -, 0, 0+, 0-
+			{ BOT, BOT, BOT, BOT, BOT, BOT, BOT }, // _|_
+			{ BOT, TOP, TOP, TOP, TOP, TOP, TOP }, // top
+			{ BOT, TOP, POS, TOP, POS, POS, TOP }, // +
+			{ BOT, TOP, TOP, NEG, NEG, TOP, NEG }, // -
+			{ BOT, TOP, POS, NEG, ZER, POZ, NEZ }, // 0
+			{ BOT, TOP, POS, TOP, POZ, POZ, TOP }, // 0+
+			{ BOT, TOP, TOP, NEG, NEZ, TOP, NEZ }, // 0-
+	};
+
+	private static final byte[][] SUB = {
+			// _|_, top, +, -, 0, 0+, 0-
+			{ BOT, BOT, BOT, BOT, BOT, BOT, BOT }, // _|_
+			{ BOT, TOP, TOP, TOP, TOP, TOP, TOP }, // top
+			{ BOT, TOP, TOP, POS, POS, TOP, POS }, // +
+			{ BOT, TOP, NEG, TOP, NEG, NEG, TOP }, // -
+			{ BOT, TOP, NEG, POS, ZER, NEZ, POZ }, // 0
+			{ BOT, TOP, TOP, POS, POZ, TOP, POZ }, // 0+
+			{ BOT, TOP, NEG, TOP, NEZ, NEZ, TOP }, // 0-
+	};
+
+	private static final byte[][] MUL = {
+			// _|_, top, +, -, 0, 0+, 0-
+			{ BOT, BOT, BOT, BOT, BOT, BOT, BOT }, // _|_
+			{ BOT, TOP, TOP, TOP, ZER, TOP, TOP }, // top
+			{ BOT, TOP, POS, NEG, ZER, POZ, NEZ }, // +
+			{ BOT, TOP, NEG, POS, ZER, NEZ, POZ }, // -
+			{ BOT, ZER, ZER, ZER, ZER, ZER, ZER }, // 0
+			{ BOT, TOP, POZ, NEZ, ZER, POZ, NEZ }, // 0+
+			{ BOT, TOP, NEZ, POZ, ZER, NEZ, POZ }, // 0-
+	};
+
+	private static final byte[][] DIV = {
+			// _|_, top, +, -, 0, 0+, 0-
+			{ BOT, BOT, BOT, BOT, BOT, BOT, BOT }, // _|_
+			{ BOT, TOP, TOP, TOP, BOT, TOP, TOP }, // top
+			{ BOT, TOP, POS, NEG, BOT, POS, NEG }, // +
+			{ BOT, TOP, NEG, POS, BOT, NEG, POS }, // -
+			{ BOT, ZER, ZER, ZER, BOT, ZER, ZER }, // 0
+			{ BOT, TOP, POZ, NEZ, BOT, POZ, NEZ }, // 0+
+			{ BOT, TOP, NEZ, POZ, BOT, NEZ, POZ }, // 0-
+	};
+
+	// the tables are kept private, since arrays cannot be made read-only:
+	// other classes query them through the following methods, by ordinal
+
+	static byte minus(byte arg) {
+		return MINUS[arg];
+	}
+
+	static byte add(byte left, byte right) {
+		return ADD[left][right];
+	}
+
+	static byte sub(byte left, byte right) {
+		return SUB[left][right];
+	}
+
+	static byte mul(byte left, byte right) {
+		return MUL[left][right];
+	}
+
+	static byte div(byte left, byte right) {
+		return DIV[left][right];
+	}
+
 	private final Sign sign;
 
 	public ExtSignDomainSolution() {
@@ -27,443 +112,46 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 		this.sign = sign;
 	}
 
+	static ExtSignDomainSolution of(Sign sign) {
+		return VALUES[sign.ordinal()];
+	}
+
 	enum Sign {
 
-		BOTTOM {
-
-			@Override
-			Sign minus() {
-				return this;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				return this;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				return this;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				return this;
-			}
-
-			@Override
-			public String toString() {
-				return Lattice.BOTTOM_STRING;
-			}
-		},
-
-		TOP {
-
-			@Override
-			Sign minus() {
-				return this;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(top, bottom) = bottom
-				// add(top, top) = top;
-				// add(top, +) = top
-				// add(top, 0) = top
-				// add(top, -) = top
-				// add(top, 0+) = top
-				// add(top, 0-) = top
-				return other == BOTTOM ? other : this;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(top, bottom) = bottom
-				// mul(top, top) = top;
-				// mul(top, +) = top
-				// mul(top, 0) = 0
-				// mul(top, -) = top
-				// mul(top, 0+) = top
-				// mul(top, 0-) = top
-				return other == BOTTOM ? other : other == ZERO ? ZERO : TOP;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(top, bottom) = bottom
-				// div(top, top) = top;
-				// div(top, +) = top
-				// div(top, 0) = bottom
-				// div(top, -) = top
-				// div(top, 0+) = top
-				// div(top, 0-) = top
-				return other == ZERO || other == BOTTOM ? BOTTOM : TOP;
-			}
-
-			@Override
-			public String toString() {
-				return Lattice.TOP_STRING;
-			}
-		},
-
-		POS {
-
-			@Override
-			Sign minus() {
-				return NEG;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(+, bottom) = bottom
-				// add(+, top) = top;
-				// add(+, +) = +
-				// add(+, 0) = +
-				// add(+, -) = top
-				// add(+, 0+) = +
-				// add(+, 0-) = top
-				if (other == TOP || other == BOTTOM)
-					return other;
-				if (other == POS || other == POS_OR_ZERO || other == ZERO)
-					return this;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(+, bottom) = bottom
-				// mul(+, top) = top;
-				// mul(+, +) = +
-				// mul(+, 0) = 0
-				// mul(+, -) = -
-				// mul(+, 0+) = 0+
-				// mul(+, 0-) = 0-
-				return other;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(+, bottom) = bottom
-				// div(+, top) = top;
-				// div(+, +) = +
-				// div(+, 0) = bottom
-				// div(+, -) = -
-				// div(+, 0+) = +
-				// div(+, 0-) = -
-				if (other == TOP || other == BOTTOM)
-					return other;
-				if (other == POS || other == POS_OR_ZERO)
-					return POS;
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG;
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "+";
-			}
-		},
-
-		NEG {
-
-			@Override
-			Sign minus() {
-				return POS;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(-, bottom) = bottom
-				// add(-, top) = top;
-				// add(-, +) = top
-				// add(-, 0) = -
-				// add(-, -) = -
-				// add(-, 0+) = top
-				// add(-, 0-) = -
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == NEG || other == ZERO || other == NEG_OR_ZERO)
-					return NEG;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(-, bottom) = bottom
-				// mul(-, top) = top;
-				// mul(-, +) = -
-				// mul(-, 0) = 0
-				// mul(-, -) = +
-				// mul(-, 0+) = 0-
-				// mul(-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS)
-					return this;
-
-				if (other == ZERO)
-					return other;
-
-				if (other == NEG)
-					return POS;
-
-				if (other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(-, bottom) = bottom
-				// div(-, top) = top;
-				// div(-, +) = -
-				// div(-, 0) = bottom
-				// div(-, -) = +
-				// div(-, 0+) = -
-				// div(-, 0-) = +
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return POS;
-
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "-";
-			}
-		},
-
-		ZERO {
-
-			@Override
-			Sign minus() {
-				return ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0, bottom) = bottom
-				// add(0, top) = top;
-				// add(0, +) = +
-				// add(0, 0) = 0
-				// add(0, -) = -
-				// add(0, 0+) = 0+
-				// add(0, 0-) = 0-
-				return other;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0, bottom) = bottom
-				// mul(0, top) = 0;
-				// mul(0, +) = 0
-				// mul(0, 0) = 0
-				// mul(0, -) = 0
-				// mul(0, 0+) = 0
-				// mul(0, 0-) = 0
-				return other == BOTTOM ? other : ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0, bottom) = bottom
-				// div(0, top) = 0;
-				// div(0, +) = 0
-				// div(0, 0) = bottom
-				// div(0, -) = 0
-				// div(0, 0+) = 0
-				// div(0, 0-) = 0
-				return other == ZERO || other == BOTTOM ? BOTTOM : ZERO;
-			}
-
-			@Override
-			public String toString() {
-				return "0";
-			}
-		},
-
-		POS_OR_ZERO {
-
-			@Override
-			Sign minus() {
-				return NEG_OR_ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0+, bottom) = bottom
-				// add(0+, top) = top;
-				// add(0+, +) = +
-				// add(0+, 0) = 0+
-				// add(0+, -) = top
-				// add(0+, 0+) = 0+
-				// add(0+, 0-) = top
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return other;
-
-				if (other == ZERO)
-					return POS_OR_ZERO;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0+, bottom) = bottom
-				// mul(0+, top) = top;
-				// mul(0+, +) = 0+
-				// mul(0+, 0) = 0
-				// mul(0+, -) = 0-
-				// mul(0+, 0+) = 0+
-				// mul(0+, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return POS_OR_ZERO;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				return ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0+, bottom) = bottom
-				// div(0+, top) = top;
-				// div(0+, +) = 0+
-				// div(0+, 0) = bottom
-				// div(0+, -) = 0-
-				// div(0+, 0+) = 0+
-				// div(0+, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return POS_OR_ZERO;
-
-				if (other == NEG || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				return BOTTOM;
-			}
-
-			@Override
-			public String toString() {
-				return "0+";
-			}
-		},
-
-		NEG_OR_ZERO {
-
-			@Override
-			Sign minus() {
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign add(Sign other) {
-				// add(0-, bottom) = bottom
-				// add(0-, top) = top;
-				// add(0-, +) = top
-				// add(0-, 0) = 0-
-				// add(0-, -) = -
-				// add(0-, 0+) = top
-				// add(0-, 0-) = 0-
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == ZERO || other == NEG_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == NEG)
-					return other;
-
-				return TOP;
-			}
-
-			@Override
-			Sign mul(Sign other) {
-				// mul(0-, bottom) = bottom
-				// mul(0-, top) = top;
-				// mul(0-, +) = 0-
-				// mul(0-, 0) = 0
-				// mul(0-, -) = 0+
-				// mul(0-, 0+) = 0-
-				// mul(0-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == ZERO)
-					return other;
-
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			Sign div(Sign other) {
-				// div(0-, bottom) = bottom
-				// div(0-, top) = top;
-				// div(0-, +) = 0-
-				// div(0-, 0) = bottom
-				// div(0-, -) = 0+
-				// div(0-, 0+) = 0-
-				// div(0-, 0-) = 0+
-				if (other == TOP || other == BOTTOM)
-					return other;
-
-				if (other == POS || other == POS_OR_ZERO)
-					return NEG_OR_ZERO;
-
-				if (other == ZERO)
-					return BOTTOM;
-				return POS_OR_ZERO;
-			}
-
-			@Override
-			public String toString() {
-				return "0-";
-			}
-		};
-
-		abstract Sign minus();
-
-		abstract Sign add(Sign other);
-
-		abstract Sign mul(Sign other);
-
-		abstract Sign div(Sign other);
+		BOTTOM(Lattice.BOTTOM_STRING),
+
+		TOP(Lattice.TOP_STRING),
+
+		POS("+"),
+
+		NEG("-"),
+
+		ZERO("0"),
+
+		POS_OR_ZERO("0+"),
+
+		NEG_OR_ZERO("0-");
+
+		private final String representation;
+
+		private Sign(String representation) {
+			this.representation = representation;
+		}
 
 		@Override
-		public abstract String toString();
+		public String toString() {
+			return representation;
+		}
 	}
 
 	@Override
 	public ExtSignDomainSolution top() {
-		return new ExtSignDomainSolution(Sign.TOP);
+		return VALUES[TOP];
 	}
 
 	@Override
 	public ExtSignDomainSolution bottom() {
-		return new ExtSignDomainSolution(Sign.BOTTOM);
+		return VALUES[BOT];
 	}
 
 	@Override
@@ -481,11 +169,11 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 		if (constant.getValue() instanceof Integer) {
 			int c = (int) constant.getValue();
 			if (c == 0)
-				return new ExtSignDomainSolution(Sign.ZERO);
+				return VALUES[ZER];
 			else if (c > 0)
-				return new ExtSignDomainSolution(Sign.POS);
+				return VALUES[POS];
 			else
-				return new ExtSignDomainSolution(Sign.NEG);
+				return VALUES[NEG];
 		}
 		return top();
 	}
@@ -494,7 +182,7 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 	protected ExtSignDomainSolution evalUnaryExpression(UnaryOperator operator, ExtSignDomainSolution arg,
 			ProgramPoint pp) {
 		if (operator instanceof NumericNegation)
-			return new ExtSignDomainSolution(arg.sign.minus());
+			return VALUES[MINUS[arg.sign.ordinal()]];
 		return top();
 	}
 
@@ -502,15 +190,19 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 	protected ExtSignDomainSolution evalBinaryExpression(BinaryOperator operator, ExtSignDomainSolution left,
 			ExtSignDomainSolution right,
 			ProgramPoint pp) {
+		byte[][] table;
 		if (operator instanceof AdditionOperator)
-			return new ExtSignDomainSolution(left.sign.add(right.sign));
-		if (operator instanceof DivisionOperator)
-			return new ExtSignDomainSolution(left.sign.div(right.sign));
-		if (operator instanceof Multiplication)
-			return new ExtSignDomainSolution(left.sign.mul(right.sign));
-		if (operator instanceof SubtractionOperator)
-			return new ExtSignDomainSolution(left.sign.add(right.sign.minus()));
-		return top();
+			table = ADD;
+		else if (operator instanceof DivisionOperator)
+			table = DIV;
+		else if (operator instanceof Multiplication)
+			table = MUL;
+		else if (operator instanceof SubtractionOperator)
+			table = SUB;
+		else
+			return top();
+
+		return VALUES[table[left.sign.ordinal()][right.sign.ordinal()]];
 	}
 
 	@Override
@@ -522,16 +214,16 @@ public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignD
 
 		if (sign == Sign.ZERO) {
 			if (other.sign == Sign.POS)
-				return new ExtSignDomainSolution(Sign.POS_OR_ZERO);
+				return VALUES[POZ];
 			else if (other.sign == Sign.NEG)
-				return new ExtSignDomainSolution(Sign.NEG_OR_ZERO);
+				return VALUES[NEZ];
 		}
 
 		if (other.sign == Sign.ZERO) {
 			if (sign == Sign.POS)
-				return new ExtSignDomainSolution(Sign.POS_OR_ZERO);
+				return VALUES[POZ];
 			else if (sign == Sign.NEG)
-				return new ExtSignDomainSolution(Sign.NEG_OR_ZERO);
+				return VALUES[NEZ];
 		}
 
 		return top();
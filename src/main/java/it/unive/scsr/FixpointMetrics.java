@@ -0,0 +1,321 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.workset.FIFOWorkingSet;
+import it.unive.lisa.util.workset.WorkingSet;
+
+/**
+ * Collects metrics about the fixpoint iterations of an analysis, for each CFG:
+ * how many lub, widening and lessOrEqual operations are performed, how many
+ * assignments and expression evaluations happen together with the sizes of
+ * the sets they read and produce, and the wall time spent. For each node, it
+ * records how many times the node is visited and, for dataflow domains, how
+ * many of its transfers generate and kill elements, and how many elements
+ * they generate and kill. Metrics are gathered by an
+ * {@link InstrumentedWorkingSet} and by an {@link InstrumentedValueDomain}
+ * wrapping the value domain of the analysis. Since LiSA creates working sets
+ * reflectively, they find the metrics to update through {@link #install}:
+ * only one analysis at a time can be instrumented.
+ */
+public class FixpointMetrics {
+
+	private static volatile FixpointMetrics current;
+
+	private final Class<? extends WorkingSet<Statement>> workingSet;
+	private final Map<CFG, CfgMetrics> cfgs = new LinkedHashMap<>();
+
+	// the metrics of the fixpoint that is running
+	private CfgMetrics running;
+
+	private FixpointMetrics(Class<? extends WorkingSet<Statement>> workingSet) {
+		this.workingSet = workingSet;
+	}
+
+	/**
+	 * Starts collecting metrics, with a FIFO working set.
+	 */
+	public static FixpointMetrics install() {
+		return install(FIFOWorkingSet.class);
+	}
+
+	/**
+	 * Starts collecting metrics. The given working set, which must have a
+	 * static {@code mk()} factory as the ones of LiSA, decides the order in
+	 * which nodes are visited.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static FixpointMetrics install(Class<? extends WorkingSet> workingSet) {
+		FixpointMetrics metrics = new FixpointMetrics((Class<? extends WorkingSet<Statement>>) workingSet);
+		current = metrics;
+		return metrics;
+	}
+
+	/**
+	 * Stops collecting metrics.
+	 */
+	public void uninstall() {
+		if (current == this)
+			current = null;
+	}
+
+	static FixpointMetrics current() {
+		return current;
+	}
+
+	@SuppressWarnings("unchecked")
+	WorkingSet<Statement> newWorkingSet() {
+		try {
+			return (WorkingSet<Statement>) workingSet.getMethod("mk").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Unable to create a working set of type " + workingSet.getName(), e);
+		}
+	}
+
+	synchronized CfgMetrics of(CFG cfg) {
+		CfgMetrics metrics = cfgs.computeIfAbsent(cfg, CfgMetrics::new);
+		running = metrics;
+		return metrics;
+	}
+
+	synchronized CfgMetrics of(ProgramPoint pp) {
+		return pp == null || pp.getCFG() == null ? running : of(pp.getCFG());
+	}
+
+	synchronized CfgMetrics running() {
+		return running;
+	}
+
+	synchronized List<CfgMetrics> cfgs() {
+		return new ArrayList<>(cfgs.values());
+	}
+
+	/**
+	 * The metrics of a single node.
+	 */
+	static final class NodeMetrics {
+
+		private long visits, gens, genSize, kills, killSize;
+
+		long visits() {
+			return visits;
+		}
+
+		long gens() {
+			return gens;
+		}
+
+		long genSize() {
+			return genSize;
+		}
+
+		long kills() {
+			return kills;
+		}
+
+		long killSize() {
+			return killSize;
+		}
+	}
+
+	static final class CfgMetrics {
+
+		private final CFG cfg;
+		private final Map<Statement, NodeMetrics> nodes = new LinkedHashMap<>();
+		private long lub, widening, lessOrEqual;
+		private long assignments, smallSteps, elementsRead, elementsWritten;
+		private long started = -1, nanos;
+
+		// the node whose semantics is being computed
+		private NodeMetrics visiting;
+
+		private CfgMetrics(CFG cfg) {
+			this.cfg = cfg;
+		}
+
+		synchronized void started() {
+			if (started < 0)
+				started = System.nanoTime();
+		}
+
+		synchronized void finished() {
+			if (started >= 0) {
+				nanos += System.nanoTime() - started;
+				started = -1;
+			}
+		}
+
+		synchronized void visit(Statement st) {
+			visiting = nodes.computeIfAbsent(st, k -> new NodeMetrics());
+			visiting.visits++;
+		}
+
+		CFG cfg() {
+			return cfg;
+		}
+
+		synchronized NodeMetrics node(Statement st) {
+			return nodes.get(st);
+		}
+
+		synchronized long lubs() {
+			return lub;
+		}
+
+		synchronized long lessOrEquals() {
+			return lessOrEqual;
+		}
+
+		synchronized void lub() {
+			lub++;
+		}
+
+		synchronized void widening() {
+			widening++;
+		}
+
+		synchronized void lessOrEqual() {
+			lessOrEqual++;
+		}
+
+		/**
+		 * Records an assignment that turned the {@code read} elements into the
+		 * {@code written} ones, which are {@code null} for non-dataflow
+		 * domains.
+		 */
+		synchronized void assignment(Collection<?> read, Collection<?> written) {
+			assignments++;
+			transfer(read, written);
+		}
+
+		/**
+		 * Records the evaluation of an expression that is not assigned, as
+		 * {@link #assignment(Collection, Collection)} does: some dataflow
+		 * domains, such as available expressions, generate elements there
+		 * too.
+		 */
+		synchronized void smallStep(Collection<?> read, Collection<?> written) {
+			smallSteps++;
+			transfer(read, written);
+		}
+
+		private void transfer(Collection<?> read, Collection<?> written) {
+			if (read != null)
+				elementsRead += read.size();
+			if (written != null)
+				elementsWritten += written.size();
+			if (read == null || written == null || visiting == null)
+				return;
+
+			// elements that are killed and generated again are in both sets,
+			// so they count for neither
+			int generated = missing(written, read);
+			int killed = missing(read, written);
+			if (generated > 0) {
+				visiting.gens++;
+				visiting.genSize += generated;
+			}
+			if (killed > 0) {
+				visiting.kills++;
+				visiting.killSize += killed;
+			}
+		}
+
+		private static int missing(Collection<?> elements, Collection<?> from) {
+			int missing = 0;
+			for (Object element : elements)
+				if (!from.contains(element))
+					missing++;
+			return missing;
+		}
+	}
+
+	/**
+	 * Writes the metrics, as JSON, to the given file.
+	 */
+	public synchronized void write(Path file) throws IOException {
+		if (file.getParent() != null)
+			Files.createDirectories(file.getParent());
+		try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"cfgs\": [");
+			boolean firstCfg = true;
+			for (CfgMetrics m : cfgs.values()) {
+				writer.write(firstCfg ? "\n" : ",\n");
+				firstCfg = false;
+				long total = 0;
+				for (NodeMetrics node : m.nodes.values())
+					total += node.visits;
+				writer.write("    {\n");
+				field(writer, "name", m.cfg.getDescriptor().getFullName());
+				field(writer, "wallTimeMillis", m.nanos / 1_000_000.0);
+				field(writer, "visits", total);
+				field(writer, "lub", m.lub);
+				field(writer, "widening", m.widening);
+				field(writer, "lessOrEqual", m.lessOrEqual);
+				field(writer, "assignments", m.assignments);
+				field(writer, "smallSteps", m.smallSteps);
+				field(writer, "elementsRead", m.elementsRead);
+				field(writer, "elementsWritten", m.elementsWritten);
+				writer.write("      \"nodes\": [");
+				boolean firstNode = true;
+				for (Map.Entry<Statement, NodeMetrics> node : m.nodes.entrySet()) {
+					writer.write(firstNode ? "\n" : ",\n");
+					firstNode = false;
+					NodeMetrics n = node.getValue();
+					writer.write("        { \"node\": " + quote(node.getKey().toString()) + ", \"location\": "
+							+ quote(String.valueOf(node.getKey().getLocation())) + ", \"visits\": " + n.visits
+							+ ", \"gen\": " + n.gens + ", \"genSize\": " + n.genSize + ", \"kill\": " + n.kills
+							+ ", \"killSize\": " + n.killSize + " }");
+				}
+				writer.write(firstNode ? "]\n" : "\n      ]\n");
+				writer.write("    }");
+			}
+			writer.write(firstCfg ? "]\n}\n" : "\n  ]\n}\n");
+		}
+	}
+
+	private static void field(Writer writer, String name, Object value) throws IOException {
+		writer.write("      " + quote(name) + ": "
+				+ (value instanceof String ? quote((String) value) : String.valueOf(value)) + ",\n");
+	}
+
+	private static String quote(String s) {
+		StringBuilder builder = new StringBuilder("\"");
+		for (char c : s.toCharArray())
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20)
+					builder.append(String.format("\\u%04x", (int) c));
+				else
+					builder.append(c);
+			}
+		return builder.append('"').toString();
+	}
+}
@@ -0,0 +1,133 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A value domain that behaves as the one it wraps, except that it widens only
+ * at the heads of loops and joins with lub everywhere else. LiSA widens any
+ * statement visited often enough, which loses precision inside loop bodies and
+ * after them, while widening the heads is enough for the fixpoint to
+ * terminate. Heads are those of the {@link WeakTopologicalOrder} of the CFG,
+ * so this domain must be used together with
+ * {@code conf.setFixpointWorkingSet(WTOWorkingSet.class)}: with other working
+ * sets, it widens wherever LiSA does.
+ */
+public class HeadWideningValueDomain<D extends ValueDomain<D>> implements ValueDomain<HeadWideningValueDomain<D>> {
+
+	private final D domain;
+
+	public HeadWideningValueDomain(D domain) {
+		this.domain = domain;
+	}
+
+	private HeadWideningValueDomain<D> mk(D domain) {
+		return domain == this.domain ? this : new HeadWideningValueDomain<>(domain);
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		return mk(domain.assign(id, expression, pp));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		return mk(domain.smallStepSemantics(expression, pp));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return mk(domain.assume(expression, pp));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> forgetIdentifier(Identifier id) throws SemanticException {
+		return mk(domain.forgetIdentifier(id));
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return domain.satisfies(expression, pp);
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> pushScope(ScopeToken token) throws SemanticException {
+		return mk(domain.pushScope(token));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> popScope(ScopeToken token) throws SemanticException {
+		return mk(domain.popScope(token));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> lub(HeadWideningValueDomain<D> other) throws SemanticException {
+		return mk(domain.lub(other.domain));
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> widening(HeadWideningValueDomain<D> other) throws SemanticException {
+		if (!WTOWorkingSet.visitingHead())
+			return mk(domain.lub(other.domain));
+		return mk(domain.widening(other.domain));
+	}
+
+	@Override
+	public boolean lessOrEqual(HeadWideningValueDomain<D> other) throws SemanticException {
+		return domain.lessOrEqual(other.domain);
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> top() {
+		return mk(domain.top());
+	}
+
+	@Override
+	public HeadWideningValueDomain<D> bottom() {
+		return mk(domain.bottom());
+	}
+
+	@Override
+	public boolean isTop() {
+		return domain.isTop();
+	}
+
+	@Override
+	public boolean isBottom() {
+		return domain.isBottom();
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		return domain.representation();
+	}
+
+	@Override
+	public int hashCode() {
+		return domain.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		HeadWideningValueDomain<?> other = (HeadWideningValueDomain<?>) obj;
+		return domain.equals(other.domain);
+	}
+
+	@Override
+	public String toString() {
+		return domain.toString();
+	}
+}
@@ -0,0 +1,225 @@
+package it.unive.scsr;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Generates synthetic IMP programs to stress and benchmark the analyses of
+ * this project. Programs are a single class whose methods {@code f0},
+ * {@code f1}, ... share the same shape:
+ * <ul>
+ * <li>each method declares {@code variables} integer variables;</li>
+ * <li>each block contains {@code straightLine} assignments, followed by a
+ * loop containing a nested block as long as the nesting is below
+ * {@code loopDepth}, followed by {@code branching} if-else statements with
+ * {@code straightLine} assignments in each branch;</li>
+ * <li>assigned expressions are random trees of {@code + - * /} over the
+ * variables and small constants, {@code expressionDepth} levels deep.</li>
+ * </ul>
+ * The number of statements is thus linear in each of the other parameters,
+ * but each assigned expression is a complete binary tree with
+ * {@code 2^(expressionDepth - 1)} operands, so the size of the program grows
+ * exponentially with {@code expressionDepth}. Generation is
+ * driven by a seeded {@link Random}, so the same parameters always yield the
+ * same program.
+ */
+public class ImpProgramGenerator {
+
+	private static final String[] OPERATORS = { "+", "-", "*", "/" };
+	private static final String[] COMPARISONS = { "<", ">", "==" };
+
+	private long seed = 0;
+	private int methods = 1;
+	private int straightLine = 5;
+	private int loopDepth = 1;
+	private int branching = 1;
+	private int variables = 4;
+	private int expressionDepth = 2;
+
+	private Random random;
+	private StringBuilder builder;
+
+	public ImpProgramGenerator setSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	public ImpProgramGenerator setMethods(int methods) {
+		this.methods = requirePositive("methods", methods);
+		return this;
+	}
+
+	public ImpProgramGenerator setStraightLine(int straightLine) {
+		this.straightLine = requireNonNegative("straightLine", straightLine);
+		return this;
+	}
+
+	public ImpProgramGenerator setLoopDepth(int loopDepth) {
+		this.loopDepth = requireNonNegative("loopDepth", loopDepth);
+		return this;
+	}
+
+	public ImpProgramGenerator setBranching(int branching) {
+		this.branching = requireNonNegative("branching", branching);
+		return this;
+	}
+
+	public ImpProgramGenerator setVariables(int variables) {
+		this.variables = requirePositive("variables", variables);
+		return this;
+	}
+
+	public ImpProgramGenerator setExpressionDepth(int expressionDepth) {
+		this.expressionDepth = requirePositive("expressionDepth", expressionDepth);
+		return this;
+	}
+
+	private static int requirePositive(String name, int value) {
+		if (value < 1)
+			throw new IllegalArgumentException(name + " must be positive: " + value);
+		return value;
+	}
+
+	private static int requireNonNegative(String name, int value) {
+		if (value < 0)
+			throw new IllegalArgumentException(name + " must not be negative: " + value);
+		return value;
+	}
+
+	/**
+	 * Yields the source of a class with the given name.
+	 */
+	public String generate(String className) {
+		random = new Random(seed);
+		builder = new StringBuilder();
+		builder.append("class ").append(className).append(" {\n");
+		for (int m = 0; m < methods; m++) {
+			builder.append("\n\tf").append(m).append("() {\n");
+			for (int v = 0; v < variables; v++)
+				line(2).append("def ").append(variable(v)).append(" = ").append(constant()).append(";\n");
+			block(0, 2);
+			line(2).append("return ").append(variable(random.nextInt(variables))).append(";\n");
+			builder.append("\t}\n");
+		}
+		builder.append("}\n");
+		String result = builder.toString();
+		builder = null;
+		return result;
+	}
+
+	private void block(int nesting, int indent) {
+		straightLine(indent);
+
+		if (nesting < loopDepth) {
+			line(indent).append("while (").append(condition()).append(") {\n");
+			block(nesting + 1, indent + 1);
+			line(indent).append("}\n");
+		}
+
+		for (int b = 0; b < branching; b++) {
+			line(indent).append("if (").append(condition()).append(") {\n");
+			straightLine(indent + 1);
+			line(indent).append("} else {\n");
+			straightLine(indent + 1);
+			line(indent).append("}\n");
+		}
+	}
+
+	private void straightLine(int indent) {
+		for (int s = 0; s < straightLine; s++)
+			line(indent).append(variable(random.nextInt(variables))).append(" = ").append(expression(expressionDepth))
+					.append(";\n");
+	}
+
+	private StringBuilder line(int indent) {
+		for (int i = 0; i < indent; i++)
+			builder.append('\t');
+		return builder;
+	}
+
+	private String expression(int depth) {
+		if (depth <= 1)
+			return operand();
+		// both operands are parenthesized, so that precedence does not reshape
+		// the tree
+		return parenthesized(depth - 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)] + " "
+				+ parenthesized(depth - 1);
+	}
+
+	private String parenthesized(int depth) {
+		return depth <= 1 ? operand() : "(" + expression(depth) + ")";
+	}
+
+	private String operand() {
+		// variables are more frequent than constants, as they are what the
+		// analyses track; constants are not negated to avoid unary minus
+		// next to binary operators
+		return random.nextInt(4) == 0 ? String.valueOf(random.nextInt(6)) : variable(random.nextInt(variables));
+	}
+
+	private String condition() {
+		return variable(random.nextInt(variables)) + " " + COMPARISONS[random.nextInt(COMPARISONS.length)] + " "
+				+ operand();
+	}
+
+	private String constant() {
+		int c = random.nextInt(11) - 5;
+		return c < 0 ? "-" + (-c) : String.valueOf(c);
+	}
+
+	private static String variable(int index) {
+		return "v" + index;
+	}
+
+	/**
+	 * Writes a generated program to a file. Arguments are the output file
+	 * followed by {@code name=value} pairs, where the names are {@code seed},
+	 * {@code methods}, {@code straightLine}, {@code loopDepth},
+	 * {@code branching}, {@code variables} and {@code expressionDepth}.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.err.println("Usage: ImpProgramGenerator <output.imp> [name=value]...");
+			System.exit(1);
+		}
+
+		ImpProgramGenerator generator = new ImpProgramGenerator();
+		for (int i = 1; i < args.length; i++) {
+			int eq = args[i].indexOf('=');
+			if (eq < 0)
+				throw new IllegalArgumentException("Expected name=value: " + args[i]);
+			String name = args[i].substring(0, eq);
+			String value = args[i].substring(eq + 1);
+			switch (name) {
+			case "seed":
+				generator.setSeed(Long.parseLong(value));
+				break;
+			case "methods":
+				generator.setMethods(Integer.parseInt(value));
+				break;
+			case "straightLine":
+				generator.setStraightLine(Integer.parseInt(value));
+				break;
+			case "loopDepth":
+				generator.setLoopDepth(Integer.parseInt(value));
+				break;
+			case "branching":
+				generator.setBranching(Integer.parseInt(value));
+				break;
+			case "variables":
+				generator.setVariables(Integer.parseInt(value));
+				break;
+			case "expressionDepth":
+				generator.setExpressionDepth(Integer.parseInt(value));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown parameter: " + name);
+			}
+		}
+
+		Files.write(Paths.get(args[0]), generator.generate("generated").getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,168 @@
+package it.unive.scsr;
+
+import java.util.Collection;
+
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.dataflow.DataflowDomain;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * A value domain that behaves exactly as the one it wraps, recording in the
+ * installed {@link FixpointMetrics} the lattice operations and the
+ * assignments it performs. Operations are attributed to the CFG of their
+ * program point, or to the CFG whose fixpoint is running when there is none.
+ * For dataflow domains, the element sets before and after each assignment
+ * and each evaluation of an expression are recorded too, from which the
+ * metrics derive what each node generates and kills. Since the representation
+ * is the one of the wrapped domain, instrumented analyses produce the same
+ * outputs.
+ */
+public class InstrumentedValueDomain<D extends ValueDomain<D>> implements ValueDomain<InstrumentedValueDomain<D>> {
+
+	private final D domain;
+
+	public InstrumentedValueDomain(D domain) {
+		this.domain = domain;
+	}
+
+	private InstrumentedValueDomain<D> mk(D domain) {
+		return domain == this.domain ? this : new InstrumentedValueDomain<>(domain);
+	}
+
+	private static FixpointMetrics.CfgMetrics metrics() {
+		FixpointMetrics metrics = FixpointMetrics.current();
+		return metrics == null ? null : metrics.running();
+	}
+
+	private static FixpointMetrics.CfgMetrics metrics(ProgramPoint pp) {
+		FixpointMetrics metrics = FixpointMetrics.current();
+		return metrics == null ? null : metrics.of(pp);
+	}
+
+	private static Collection<?> elementsOf(ValueDomain<?> domain) {
+		if (domain instanceof DataflowDomain && !domain.isTop() && !domain.isBottom())
+			return ((DataflowDomain<?, ?>) domain).getDataflowElements();
+		return null;
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		D result = domain.assign(id, expression, pp);
+		FixpointMetrics.CfgMetrics metrics = metrics(pp);
+		if (metrics != null)
+			metrics.assignment(elementsOf(domain), elementsOf(result));
+		return mk(result);
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		D result = domain.smallStepSemantics(expression, pp);
+		FixpointMetrics.CfgMetrics metrics = metrics(pp);
+		if (metrics != null)
+			metrics.smallStep(elementsOf(domain), elementsOf(result));
+		return mk(result);
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return mk(domain.assume(expression, pp));
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> forgetIdentifier(Identifier id) throws SemanticException {
+		return mk(domain.forgetIdentifier(id));
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		return domain.satisfies(expression, pp);
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> pushScope(ScopeToken token) throws SemanticException {
+		return mk(domain.pushScope(token));
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> popScope(ScopeToken token) throws SemanticException {
+		return mk(domain.popScope(token));
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> lub(InstrumentedValueDomain<D> other) throws SemanticException {
+		FixpointMetrics.CfgMetrics metrics = metrics();
+		if (metrics != null)
+			metrics.lub();
+		return mk(domain.lub(other.domain));
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> widening(InstrumentedValueDomain<D> other) throws SemanticException {
+		FixpointMetrics.CfgMetrics metrics = metrics();
+		if (metrics != null)
+			metrics.widening();
+		return mk(domain.widening(other.domain));
+	}
+
+	@Override
+	public boolean lessOrEqual(InstrumentedValueDomain<D> other) throws SemanticException {
+		FixpointMetrics.CfgMetrics metrics = metrics();
+		if (metrics != null)
+			metrics.lessOrEqual();
+		return domain.lessOrEqual(other.domain);
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> top() {
+		return mk(domain.top());
+	}
+
+	@Override
+	public InstrumentedValueDomain<D> bottom() {
+		return mk(domain.bottom());
+	}
+
+	@Override
+	public boolean isTop() {
+		return domain.isTop();
+	}
+
+	@Override
+	public boolean isBottom() {
+		return domain.isBottom();
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		return domain.representation();
+	}
+
+	@Override
+	public int hashCode() {
+		return domain.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		InstrumentedValueDomain<?> other = (InstrumentedValueDomain<?>) obj;
+		return domain.equals(other.domain);
+	}
+
+	@Override
+	public String toString() {
+		return domain.toString();
+	}
+}
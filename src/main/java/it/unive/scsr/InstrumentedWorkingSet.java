@@ -0,0 +1,77 @@
+package it.unive.scsr;
+
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.workset.WorkingSet;
+
+/**
+ * A working set that records, in the installed {@link FixpointMetrics}, how
+ * many times each node is visited and how long the fixpoint over each CFG
+ * takes, delegating the order of the visit to the working set chosen when
+ * the metrics were installed. Use it with
+ * {@code conf.setFixpointWorkingSet(InstrumentedWorkingSet.class)}.
+ */
+public class InstrumentedWorkingSet implements WorkingSet<Statement> {
+
+	private final FixpointMetrics metrics;
+	private final WorkingSet<Statement> delegate;
+	private FixpointMetrics.CfgMetrics cfg;
+
+	private InstrumentedWorkingSet(FixpointMetrics metrics) {
+		this.metrics = metrics;
+		this.delegate = metrics.newWorkingSet();
+	}
+
+	/**
+	 * Builds a new, empty working set. This is what LiSA invokes to create the
+	 * working set of each fixpoint.
+	 */
+	public static InstrumentedWorkingSet mk() {
+		FixpointMetrics metrics = FixpointMetrics.current();
+		if (metrics == null)
+			throw new IllegalStateException("No metrics installed: call FixpointMetrics.install() first");
+		return new InstrumentedWorkingSet(metrics);
+	}
+
+	@Override
+	public void push(Statement st) {
+		if (cfg == null) {
+			cfg = metrics.of(st.getCFG());
+			cfg.started();
+		}
+		delegate.push(st);
+	}
+
+	@Override
+	public Statement pop() {
+		Statement st = delegate.pop();
+		// the fixpoint may be interleaved with others (e.g., for calls), so
+		// the running CFG is set again at each visit
+		cfg = metrics.of(st.getCFG());
+		cfg.visit(st);
+		return st;
+	}
+
+	@Override
+	public Statement peek() {
+		return delegate.peek();
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		boolean empty = delegate.isEmpty();
+		// the fixpoint is over when it finds the working set empty
+		if (empty && cfg != null)
+			cfg.finished();
+		return empty;
+	}
+
+	@Override
+	public String toString() {
+		return delegate.toString();
+	}
+}
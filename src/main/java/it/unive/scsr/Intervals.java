@@ -0,0 +1,319 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Expression;
+import it.unive.lisa.program.cfg.statement.NaryExpression;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.literal.Literal;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.DivisionOperator;
+import it.unive.lisa.symbolic.value.operator.Multiplication;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+
+/**
+ * The interval domain over integers. Both bounds of an interval are stored in
+ * a single {@code long}, the lower one in the high 32 bits and the upper one
+ * in the low 32 bits, with {@link Integer#MIN_VALUE} and
+ * {@link Integer#MAX_VALUE} standing for -&infin; and +&infin;: bounds that
+ * fall outside of that range are approximated soundly, with the infinities or,
+ * when a lower bound is too large (or an upper one too small), with the
+ * closest finite bound.
+ * Arithmetic is carried out on primitive values, so the only allocation of
+ * each operation is the resulting instance. Widening is performed with
+ * thresholds: a growing bound jumps to the closest constant of the program
+ * (see {@link #withThresholdsFrom(Program)}) instead of going straight to
+ * infinity.
+ */
+public class Intervals extends BaseNonRelationalValueDomain<Intervals> {
+
+	private static final int MINUS_INF = Integer.MIN_VALUE;
+	private static final int PLUS_INF = Integer.MAX_VALUE;
+
+	private static final long TOP_BOUNDS = pack(MINUS_INF, PLUS_INF);
+	// any interval with lo > hi is empty, this is the canonical one
+	private static final long BOTTOM_BOUNDS = pack(PLUS_INF, MINUS_INF);
+
+	/**
+	 * The widening thresholds of an analysis, together with the canonical top
+	 * and bottom elements that use them.
+	 */
+	private static final class Thresholds {
+		private final int[] values;
+		private final Intervals top;
+		private final Intervals bottom;
+
+		private Thresholds(int[] values) {
+			this.values = values;
+			this.top = new Intervals(TOP_BOUNDS, this);
+			this.bottom = new Intervals(BOTTOM_BOUNDS, this);
+		}
+	}
+
+	private static final Thresholds NO_THRESHOLDS = new Thresholds(new int[0]);
+
+	private final long bounds;
+	private final Thresholds thresholds;
+
+	public Intervals() {
+		this(TOP_BOUNDS, NO_THRESHOLDS);
+	}
+
+	private Intervals(long bounds, Thresholds thresholds) {
+		this.bounds = bounds;
+		this.thresholds = thresholds;
+	}
+
+	/**
+	 * Builds the top element of an interval domain whose widening uses the
+	 * given thresholds.
+	 */
+	public static Intervals withThresholds(int... thresholds) {
+		int[] sorted = Arrays.stream(thresholds).filter(t -> t != MINUS_INF && t != PLUS_INF).sorted().distinct()
+				.toArray();
+		return new Thresholds(sorted).top;
+	}
+
+	/**
+	 * Builds the top element of an interval domain whose widening thresholds
+	 * are the integer literals of the given program, together with their
+	 * opposites (IMP parses {@code -10} as the negation of {@code 10}) and
+	 * zero.
+	 */
+	public static Intervals withThresholdsFrom(Program program) {
+		TreeSet<Integer> constants = new TreeSet<>();
+		constants.add(0);
+		for (CFG cfg : program.getAllCFGs())
+			for (Statement st : cfg.getNodes())
+				collectConstants(st, constants);
+		return withThresholds(constants.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	/**
+	 * Adds to {@code constants} the integer literals appearing in the given
+	 * statement, and their opposites: literals are nested in the expressions
+	 * of the nodes of a CFG, that are seldom literals themselves.
+	 */
+	static void collectConstants(Statement st, Set<Integer> constants) {
+		if (st instanceof Literal) {
+			if (((Literal<?>) st).getValue() instanceof Integer) {
+				int c = (Integer) ((Literal<?>) st).getValue();
+				constants.add(c);
+				constants.add(-c);
+			}
+		} else if (st instanceof Assignment) {
+			collectConstants(((Assignment) st).getLeft(), constants);
+			collectConstants(((Assignment) st).getRight(), constants);
+		} else if (st instanceof NaryExpression)
+			for (Expression sub : ((NaryExpression) st).getSubExpressions())
+				collectConstants(sub, constants);
+	}
+
+	/**
+	 * Yields the widening thresholds of this domain, sorted.
+	 */
+	int[] getThresholds() {
+		return thresholds.values.clone();
+	}
+
+	private static long pack(int lo, int hi) {
+		return ((long) lo << 32) | (hi & 0xFFFFFFFFL);
+	}
+
+	private static int lo(long bounds) {
+		return (int) (bounds >> 32);
+	}
+
+	private static int hi(long bounds) {
+		return (int) bounds;
+	}
+
+	private Intervals mk(long bounds) {
+		if (bounds == TOP_BOUNDS)
+			return thresholds.top;
+		if (lo(bounds) > hi(bounds))
+			return thresholds.bottom;
+		return new Intervals(bounds, thresholds);
+	}
+
+	private Intervals mk(double lo, double hi) {
+		return mk(pack(lower(lo), upper(hi)));
+	}
+
+	// the double view of a bound, where infinities are represented exactly
+	private static double toDouble(int bound) {
+		return bound == MINUS_INF ? Double.NEGATIVE_INFINITY
+				: bound == PLUS_INF ? Double.POSITIVE_INFINITY : bound;
+	}
+
+	// rounds a lower bound down, to stay sound when it is not an integer or
+	// it does not fit in one; a lower bound too large to be represented is
+	// clamped to the largest finite one, since +inf would empty the interval;
+	// NaN (e.g., inf - inf) means nothing is known
+	private static int lower(double value) {
+		if (Double.isNaN(value))
+			return MINUS_INF;
+		double floor = Math.floor(value);
+		return floor <= MINUS_INF ? MINUS_INF : floor >= PLUS_INF ? PLUS_INF - 1 : (int) floor;
+	}
+
+	private static int upper(double value) {
+		if (Double.isNaN(value))
+			return PLUS_INF;
+		double ceil = Math.ceil(value);
+		return ceil >= PLUS_INF ? PLUS_INF : ceil <= MINUS_INF ? MINUS_INF + 1 : (int) ceil;
+	}
+
+	// 0 * inf is 0 when bounds are concerned, while it is NaN for doubles
+	private static double times(double left, double right) {
+		return left == 0 || right == 0 ? 0 : left * right;
+	}
+
+	@Override
+	public Intervals top() {
+		return thresholds.top;
+	}
+
+	@Override
+	public Intervals bottom() {
+		return thresholds.bottom;
+	}
+
+	@Override
+	public boolean isTop() {
+		return bounds == TOP_BOUNDS;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return lo(bounds) > hi(bounds);
+	}
+
+	@Override
+	protected Intervals evalNonNullConstant(Constant constant, ProgramPoint pp) throws SemanticException {
+		if (constant.getValue() instanceof Integer) {
+			// the extreme integers stand for the infinities
+			int c = (Integer) constant.getValue();
+			return mk(c, c);
+		}
+		return top();
+	}
+
+	@Override
+	protected Intervals evalUnaryExpression(UnaryOperator operator, Intervals arg, ProgramPoint pp)
+			throws SemanticException {
+		if (operator instanceof NumericNegation)
+			return mk(-toDouble(hi(arg.bounds)), -toDouble(lo(arg.bounds)));
+		return top();
+	}
+
+	@Override
+	protected Intervals evalBinaryExpression(BinaryOperator operator, Intervals left, Intervals right,
+			ProgramPoint pp) throws SemanticException {
+		double l1 = toDouble(lo(left.bounds)), h1 = toDouble(hi(left.bounds));
+		double l2 = toDouble(lo(right.bounds)), h2 = toDouble(hi(right.bounds));
+
+		if (operator instanceof AdditionOperator)
+			return mk(l1 + l2, h1 + h2);
+
+		if (operator instanceof SubtractionOperator)
+			return mk(l1 - h2, h1 - l2);
+
+		if (operator instanceof Multiplication) {
+			double a = times(l1, l2), b = times(l1, h2), c = times(h1, l2), d = times(h1, h2);
+			return mk(Math.min(Math.min(a, b), Math.min(c, d)), Math.max(Math.max(a, b), Math.max(c, d)));
+		}
+
+		if (operator instanceof DivisionOperator) {
+			if (l2 == 0 && h2 == 0)
+				return bottom();
+			// the divisor is split around zero, which is excluded
+			double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+			if (l2 < 0) {
+				double neg = Math.min(h2, -1);
+				lo = Math.min(lo, Math.min(Math.min(l1 / l2, l1 / neg), Math.min(h1 / l2, h1 / neg)));
+				hi = Math.max(hi, Math.max(Math.max(l1 / l2, l1 / neg), Math.max(h1 / l2, h1 / neg)));
+			}
+			if (h2 > 0) {
+				double pos = Math.max(l2, 1);
+				lo = Math.min(lo, Math.min(Math.min(l1 / pos, l1 / h2), Math.min(h1 / pos, h1 / h2)));
+				hi = Math.max(hi, Math.max(Math.max(l1 / pos, l1 / h2), Math.max(h1 / pos, h1 / h2)));
+			}
+			return mk(lo, hi);
+		}
+
+		return top();
+	}
+
+	@Override
+	protected Intervals lubAux(Intervals other) throws SemanticException {
+		return mk(pack(Math.min(lo(bounds), lo(other.bounds)), Math.max(hi(bounds), hi(other.bounds))));
+	}
+
+	@Override
+	protected Intervals wideningAux(Intervals other) throws SemanticException {
+		int lo = lo(bounds), hi = hi(bounds);
+		int otherLo = lo(other.bounds), otherHi = hi(other.bounds);
+		int[] values = thresholds.values;
+
+		if (otherLo < lo) {
+			// the largest threshold below the new bound
+			int i = Arrays.binarySearch(values, otherLo);
+			int below = i >= 0 ? i : -i - 2;
+			lo = below >= 0 ? values[below] : MINUS_INF;
+		}
+		if (otherHi > hi) {
+			// the smallest threshold above the new bound
+			int i = Arrays.binarySearch(values, otherHi);
+			int above = i >= 0 ? i : -i - 1;
+			hi = above < values.length ? values[above] : PLUS_INF;
+		}
+		return mk(pack(lo, hi));
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(Intervals other) throws SemanticException {
+		return lo(bounds) >= lo(other.bounds) && hi(bounds) <= hi(other.bounds);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(bounds);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Intervals other = (Intervals) obj;
+		return bounds == other.bounds;
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isBottom())
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+		int lo = lo(bounds), hi = hi(bounds);
+		return new StringRepresentation("[" + (lo == MINUS_INF ? "-Inf" : String.valueOf(lo)) + ", "
+				+ (hi == PLUS_INF ? "+Inf" : String.valueOf(hi)) + "]");
+	}
+}
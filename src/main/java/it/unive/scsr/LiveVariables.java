@@ -0,0 +1,153 @@
+package it.unive.scsr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+
+/**
+ * A bit-vector live variables analysis over the statements of a single CFG. A
+ * variable is live after a statement if some path starting there reads it
+ * before assigning it. Variables are the ones referenced by name in the CFG
+ * (see {@link VariableRef}), each given a dense index, and the variables live
+ * before and after each statement are stored as {@link BitSet}s. Since the
+ * fixpoint of LiSA only proceeds forward, this backward analysis runs its own
+ * worklist iteration, syntactically: the uses of a statement are the
+ * variables it reads, and its definition is the variable it assigns, if any.
+ */
+public class LiveVariables {
+
+	private final Map<String, Integer> indexes;
+	private final List<String> names;
+	private final Map<Statement, BitSet> liveBefore;
+	private final Map<Statement, BitSet> liveAfter;
+
+	private LiveVariables(Map<String, Integer> indexes, List<String> names, Map<Statement, BitSet> liveBefore,
+			Map<Statement, BitSet> liveAfter) {
+		this.indexes = indexes;
+		this.names = names;
+		this.liveBefore = liveBefore;
+		this.liveAfter = liveAfter;
+	}
+
+	/**
+	 * Computes the live variables of the given CFG.
+	 */
+	public static LiveVariables of(CFG cfg) {
+		Map<String, Integer> indexes = new HashMap<>();
+		List<String> names = new ArrayList<>();
+		Map<Statement, BitSet> uses = new HashMap<>();
+		Map<Statement, Integer> defs = new HashMap<>();
+		Map<Statement, List<Statement>> predecessors = new HashMap<>();
+
+		for (Statement st : cfg.getNodes()) {
+			Set<String> read = new HashSet<>();
+			DefUseIndex.Builder.collectUses(st, read);
+			BitSet use = new BitSet();
+			for (String name : read)
+				use.set(indexOf(name, indexes, names));
+			uses.put(st, use);
+
+			if (st instanceof Assignment && ((Assignment) st).getLeft() instanceof VariableRef)
+				defs.put(st, indexOf(((VariableRef) ((Assignment) st).getLeft()).getName(), indexes, names));
+
+			for (Statement follower : cfg.followersOf(st))
+				predecessors.computeIfAbsent(follower, k -> new ArrayList<>()).add(st);
+		}
+
+		Map<Statement, BitSet> liveBefore = new HashMap<>();
+		Map<Statement, BitSet> liveAfter = new HashMap<>();
+		Deque<Statement> worklist = new ArrayDeque<>(cfg.getNodes());
+		Set<Statement> pending = new HashSet<>(worklist);
+		while (!worklist.isEmpty()) {
+			Statement st = worklist.removeLast();
+			pending.remove(st);
+
+			BitSet after = new BitSet();
+			for (Statement follower : cfg.followersOf(st)) {
+				BitSet in = liveBefore.get(follower);
+				if (in != null)
+					after.or(in);
+			}
+			liveAfter.put(st, after);
+
+			BitSet before = (BitSet) after.clone();
+			Integer def = defs.get(st);
+			if (def != null)
+				before.clear(def);
+			before.or(uses.get(st));
+
+			if (before.equals(liveBefore.put(st, before)))
+				continue;
+			for (Statement predecessor : predecessors.getOrDefault(st, Collections.emptyList()))
+				if (pending.add(predecessor))
+					worklist.addLast(predecessor);
+		}
+
+		return new LiveVariables(indexes, names, liveBefore, liveAfter);
+	}
+
+	private static int indexOf(String name, Map<String, Integer> indexes, List<String> names) {
+		Integer index = indexes.get(name);
+		if (index != null)
+			return index;
+		int fresh = names.size();
+		names.add(name);
+		indexes.put(name, fresh);
+		return fresh;
+	}
+
+	/**
+	 * Yields the names of the variables live before the given statement.
+	 */
+	public Set<String> liveBefore(Statement st) {
+		return namesOf(liveBefore.get(st));
+	}
+
+	/**
+	 * Yields the names of the variables live after the given statement.
+	 */
+	public Set<String> liveAfter(Statement st) {
+		return namesOf(liveAfter.get(st));
+	}
+
+	private Set<String> namesOf(BitSet live) {
+		if (live == null)
+			return Collections.emptySet();
+		Set<String> result = new TreeSet<>();
+		for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1))
+			result.add(names.get(i));
+		return result;
+	}
+
+	/**
+	 * Yields whether the given identifier is certainly dead after the given
+	 * program point: identifiers that are not variables of this CFG, and
+	 * program points that are not statements of it, are never considered
+	 * dead.
+	 */
+	boolean isDeadAfter(ProgramPoint pp, Identifier id) {
+		if (id instanceof OutOfScopeIdentifier)
+			return false;
+		BitSet live = liveAfter.get(pp);
+		if (live == null)
+			return false;
+		Integer index = indexes.get(id.getName());
+		return index != null && !live.get(index);
+	}
+}
@@ -0,0 +1,376 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * An environment specialized for sign domains, computing the same results of
+ * {@code ValueEnvironment<Signs>} or
+ * {@code ValueEnvironment<ExtSignDomainSolution>} depending on its
+ * {@link SignSemantics}. The variables of each CFG are numbered once (see
+ * {@link VariableIndex}) and the sign of each variable is packed in
+ * {@link SignSemantics#LANE_BITS} bits of a {@code long[]}, so that lub,
+ * widening and lessOrEqual on whole environments are a few word operations
+ * instead of a map traversal with one comparison per variable. When pruning
+ * is enabled, each assignment also drops the bindings of the variables that
+ * are dead after it (see {@link LiveVariables}), which does not change the
+ * values of live variables.
+ */
+public class PackedSignEnvironment extends BaseLattice<PackedSignEnvironment>
+		implements ValueDomain<PackedSignEnvironment>, SignSemantics.Store {
+
+	private static final long[] EMPTY = new long[0];
+
+	private final SignSemantics semantics;
+	private final Map<CFG, VariableIndex> indexes;
+	private final VariableIndex variables;
+
+	// the live variables of each CFG, or null if pruning is disabled
+	private final Map<CFG, LiveVariables> liveness;
+
+	// the packed signs, SignSemantics.LANES variables per word
+	private final long[] signs;
+
+	// the variables that have a binding, one per bit: unbound variables have
+	// a bottom lane, but they must not be rendered
+	private final long[] bound;
+
+	// the value of the last evaluated expression
+	private final byte stack;
+
+	private final boolean isTop;
+	private final boolean isBottom;
+
+	public PackedSignEnvironment() {
+		this(SignSemantics.EXT_SIGNS);
+	}
+
+	public PackedSignEnvironment(SignSemantics semantics) {
+		this(semantics, false);
+	}
+
+	/**
+	 * Builds the environment, dropping the bindings of dead variables if
+	 * {@code prune} is set.
+	 */
+	public PackedSignEnvironment(SignSemantics semantics, boolean prune) {
+		this(semantics, new HashMap<>(), prune ? new HashMap<>() : null, null, EMPTY, EMPTY, SignSemantics.TOP,
+				true, false);
+	}
+
+	private PackedSignEnvironment(SignSemantics semantics, Map<CFG, VariableIndex> indexes,
+			Map<CFG, LiveVariables> liveness, VariableIndex variables, long[] signs, long[] bound, byte stack,
+			boolean isTop, boolean isBottom) {
+		this.semantics = semantics;
+		this.indexes = indexes;
+		this.liveness = liveness;
+		this.variables = variables;
+		this.signs = signs;
+		this.bound = bound;
+		this.stack = stack;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private PackedSignEnvironment mk(VariableIndex variables, long[] signs, long[] bound, byte stack) {
+		return new PackedSignEnvironment(semantics, indexes, liveness, variables, signs, bound, stack, false,
+				false);
+	}
+
+	private VariableIndex variablesOf(ProgramPoint pp) {
+		if (variables != null)
+			return variables;
+		return indexes.computeIfAbsent(pp.getCFG(), cfg -> new VariableIndex());
+	}
+
+	private static byte lane(long[] signs, int index) {
+		int word = index / SignSemantics.LANES;
+		if (word >= signs.length)
+			return SignSemantics.BOTTOM;
+		int shift = (index % SignSemantics.LANES) * SignSemantics.LANE_BITS;
+		return (byte) ((signs[word] >>> shift) & SignSemantics.TOP);
+	}
+
+	private static void setLane(long[] signs, int index, byte sign) {
+		int word = index / SignSemantics.LANES;
+		int shift = (index % SignSemantics.LANES) * SignSemantics.LANE_BITS;
+		signs[word] = (signs[word] & ~((long) SignSemantics.TOP << shift)) | ((long) sign << shift);
+	}
+
+	private static boolean isBound(long[] bound, int index) {
+		int word = index / Long.SIZE;
+		return word < bound.length && (bound[word] & (1L << index)) != 0;
+	}
+
+	private static long[] grow(long[] words, int length) {
+		return words.length >= length ? words.clone() : Arrays.copyOf(words, length);
+	}
+
+	private static long word(long[] words, int index) {
+		return index < words.length ? words[index] : 0L;
+	}
+
+	@Override
+	public byte signOf(Identifier id) {
+		if (isTop)
+			return SignSemantics.TOP;
+		if (isBottom || variables == null)
+			return SignSemantics.BOTTOM;
+
+		int index = variables.find(id);
+		return index < 0 ? SignSemantics.BOTTOM : lane(signs, index);
+	}
+
+	@Override
+	public PackedSignEnvironment assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+		if (!SignSemantics.tracks(id, expression))
+			return this;
+
+		byte value = semantics.eval(expression, this);
+		VariableIndex variables = variablesOf(pp);
+		int index = variables.indexOf(id);
+		if (id.isWeak() && isBound(bound, index))
+			value = semantics.lub(value, lane(signs, index));
+
+		long[] signs = grow(this.signs, index / SignSemantics.LANES + 1);
+		long[] bound = grow(this.bound, index / Long.SIZE + 1);
+		setLane(signs, index, value);
+		bound[index / Long.SIZE] |= 1L << index;
+		prune(pp, variables, signs, bound);
+		return mk(variables, signs, bound, value);
+	}
+
+	/**
+	 * Unbinds, in place, the variables that are dead after the given program
+	 * point, if pruning is enabled.
+	 */
+	private void prune(ProgramPoint pp, VariableIndex variables, long[] signs, long[] bound) {
+		if (liveness == null)
+			return;
+
+		LiveVariables live = liveness.computeIfAbsent(pp.getCFG(), LiveVariables::of);
+		for (int word = 0; word < bound.length; word++)
+			for (long bits = bound[word]; bits != 0; bits &= bits - 1) {
+				int index = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+				if (live.isDeadAfter(pp, variables.get(index))) {
+					setLane(signs, index, SignSemantics.BOTTOM);
+					bound[word] &= ~(1L << index);
+				}
+			}
+	}
+
+	@Override
+	public PackedSignEnvironment smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+
+		return mk(variables, signs, bound, semantics.eval(expression, this));
+	}
+
+	@Override
+	public PackedSignEnvironment assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		// sign domains cannot refine the environment with conditions
+		return this;
+	}
+
+	@Override
+	public PackedSignEnvironment forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		int index = variables.find(id);
+		if (index < 0 || !isBound(bound, index))
+			return this;
+
+		long[] signs = this.signs.clone();
+		long[] bound = this.bound.clone();
+		setLane(signs, index, SignSemantics.BOTTOM);
+		bound[index / Long.SIZE] &= ~(1L << index);
+		return mk(variables, signs, bound, stack);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom)
+			return Satisfiability.BOTTOM;
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public PackedSignEnvironment pushScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		return rescope(token, true);
+	}
+
+	@Override
+	public PackedSignEnvironment popScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		return rescope(token, false);
+	}
+
+	private PackedSignEnvironment rescope(ScopeToken token, boolean push) throws SemanticException {
+		long[] signs = EMPTY;
+		long[] bound = EMPTY;
+		// scoping creates new variables, so we only visit the ones that
+		// existed before starting
+		int count = variables.size();
+		for (int i = 0; i < count; i++) {
+			if (!isBound(this.bound, i))
+				continue;
+
+			Identifier id = variables.get(i);
+			Identifier scoped;
+			if (push)
+				scoped = (Identifier) id.pushScope(token);
+			else if (id instanceof OutOfScopeIdentifier)
+				scoped = (Identifier) id.popScope(token);
+			else
+				continue;
+
+			int index = variables.indexOf(scoped);
+			signs = grow(signs, index / SignSemantics.LANES + 1);
+			bound = grow(bound, index / Long.SIZE + 1);
+			setLane(signs, index, lane(this.signs, i));
+			bound[index / Long.SIZE] |= 1L << index;
+		}
+
+		return mk(variables, signs, bound, stack);
+	}
+
+	@Override
+	public PackedSignEnvironment top() {
+		return new PackedSignEnvironment(semantics, indexes, liveness, null, EMPTY, EMPTY, SignSemantics.TOP, true,
+				false);
+	}
+
+	@Override
+	public PackedSignEnvironment bottom() {
+		return new PackedSignEnvironment(semantics, indexes, liveness, null, EMPTY, EMPTY, SignSemantics.BOTTOM,
+				false, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	protected PackedSignEnvironment lubAux(PackedSignEnvironment other) throws SemanticException {
+		long[] signs = new long[Math.max(this.signs.length, other.signs.length)];
+		for (int i = 0; i < signs.length; i++)
+			signs[i] = semantics.lubLanes(word(this.signs, i), word(other.signs, i));
+
+		long[] bound = new long[Math.max(this.bound.length, other.bound.length)];
+		for (int i = 0; i < bound.length; i++)
+			bound[i] = word(this.bound, i) | word(other.bound, i);
+
+		return mk(variables != null ? variables : other.variables, signs, bound,
+				semantics.lub(stack, other.stack));
+	}
+
+	@Override
+	protected PackedSignEnvironment wideningAux(PackedSignEnvironment other) throws SemanticException {
+		// both sign lattices have finite height, and their widening is the lub
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(PackedSignEnvironment other) throws SemanticException {
+		if (!SignSemantics.lessOrEqual(stack, other.stack))
+			return false;
+
+		for (int i = 0; i < signs.length; i++)
+			if (!SignSemantics.lessOrEqualLanes(signs[i], word(other.signs, i)))
+				return false;
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 31 * stack + (isTop ? 1 : isBottom ? 2 : 0);
+		// trailing zeros must not change the hash, as they do not change
+		// equality
+		for (int i = 0; i < signs.length; i++)
+			if (signs[i] != 0)
+				result = 31 * result + Long.hashCode(signs[i]) + i;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PackedSignEnvironment other = (PackedSignEnvironment) obj;
+		if (isTop != other.isTop || isBottom != other.isBottom || stack != other.stack
+				|| semantics != other.semantics)
+			return false;
+
+		for (int i = Math.max(signs.length, other.signs.length) - 1; i >= 0; i--)
+			if (word(signs, i) != word(other.signs, i))
+				return false;
+		for (int i = Math.max(bound.length, other.bound.length) - 1; i >= 0; i--)
+			if (word(bound, i) != word(other.bound, i))
+				return false;
+		return true;
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop)
+			return new StringRepresentation(Lattice.TOP_STRING);
+		if (isBottom)
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+
+		SortedMap<String, String> bindings = new TreeMap<>();
+		if (variables != null)
+			for (int i = 0; i < variables.size(); i++)
+				if (isBound(bound, i))
+					bindings.put(variables.get(i).toString(), semantics.toString(lane(signs, i)));
+
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, String> binding : bindings.entrySet())
+			builder.append(binding.getKey()).append(": ").append(binding.getValue()).append("\n");
+		builder.append("[stack: ").append(semantics.toString(stack)).append("]");
+		return new StringRepresentation(builder.toString());
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
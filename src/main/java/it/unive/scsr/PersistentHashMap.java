@@ -0,0 +1,289 @@
+package it.unive.scsr;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable hash map implemented as a hash array mapped trie (Bagwell,
+ * "Ideal hash trees", 2001). Each update copies only the path from the root
+ * to the modified entry, that is, at most seven nodes of at most 32 slots,
+ * while everything else is shared with the original map. Updates that do not
+ * change the map return the map itself, so callers can detect no-ops by
+ * reference comparison. Null keys and values are not supported.
+ */
+final class PersistentHashMap<K, V> {
+
+	private static final Object NOT_FOUND = new Object();
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentHashMap EMPTY = new PersistentHashMap<>(null, 0);
+
+	private final Node root;
+	private final int size;
+
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <K, V> PersistentHashMap<K, V> empty() {
+		return EMPTY;
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Yields whether this map and the given one are the same trie, in which
+	 * case they are certainly equal.
+	 */
+	boolean sharesRootWith(PersistentHashMap<K, V> other) {
+		return root == other.root;
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(K key) {
+		if (root == null)
+			return null;
+		Object value = root.find(0, hash(key), key);
+		return value == NOT_FOUND ? null : (V) value;
+	}
+
+	PersistentHashMap<K, V> put(K key, V value) {
+		boolean[] added = new boolean[1];
+		Node start = root == null ? BitmapNode.EMPTY : root;
+		Node updated = start.assoc(0, hash(key), key, value, added);
+		if (updated == start)
+			return this;
+		return new PersistentHashMap<>(updated, added[0] ? size + 1 : size);
+	}
+
+	PersistentHashMap<K, V> remove(K key) {
+		if (root == null)
+			return this;
+		Node updated = root.without(0, hash(key), key);
+		if (updated == root)
+			return this;
+		return updated == null ? empty() : new PersistentHashMap<>(updated, size - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	void forEach(BiConsumer<? super K, ? super V> action) {
+		if (root != null)
+			root.forEach((BiConsumer<Object, Object>) action);
+	}
+
+	private interface Node {
+
+		Object find(int shift, int hash, Object key);
+
+		Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+		/**
+		 * Yields the node without the given key, the node itself if the key is
+		 * not present, or {@code null} if the node becomes empty.
+		 */
+		Node without(int shift, int hash, Object key);
+
+		void forEach(BiConsumer<Object, Object> action);
+	}
+
+	private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+		int hash1 = hash(key1);
+		if (hash1 == hash2)
+			return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+		boolean[] added = new boolean[1];
+		return BitmapNode.EMPTY
+				.assoc(shift, hash1, key1, value1, added)
+				.assoc(shift, hash2, key2, value2, added);
+	}
+
+	/**
+	 * A node with up to 32 children, present ones flagged in a bitmap. Each
+	 * child takes two slots: a key and its value, or {@code null} and a
+	 * sub-node.
+	 */
+	private static final class BitmapNode implements Node {
+
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		private final int bitmap;
+		private final Object[] array;
+
+		private BitmapNode(int bitmap, Object[] array) {
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		private static int bit(int shift, int hash) {
+			return 1 << ((hash >>> shift) & 31);
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		private Object[] with(int slot, Object value) {
+			Object[] copy = array.clone();
+			copy[slot] = value;
+			return copy;
+		}
+
+		@Override
+		public Object find(int shift, int hash, Object key) {
+			int bit = bit(shift, hash);
+			if ((bitmap & bit) == 0)
+				return NOT_FOUND;
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null)
+				return ((Node) v).find(shift + 5, hash, key);
+			return key.equals(k) ? v : NOT_FOUND;
+		}
+
+		@Override
+		public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+			int bit = bit(shift, hash);
+			int idx = index(bit);
+			if ((bitmap & bit) != 0) {
+				Object k = array[2 * idx];
+				Object v = array[2 * idx + 1];
+				if (k == null) {
+					Node updated = ((Node) v).assoc(shift + 5, hash, key, value, added);
+					return updated == v ? this : new BitmapNode(bitmap, with(2 * idx + 1, updated));
+				}
+				if (key.equals(k))
+					return value.equals(v) ? this : new BitmapNode(bitmap, with(2 * idx + 1, value));
+
+				added[0] = true;
+				Object[] copy = with(2 * idx, null);
+				copy[2 * idx + 1] = createNode(shift + 5, k, v, hash, key, value);
+				return new BitmapNode(bitmap, copy);
+			}
+
+			added[0] = true;
+			Object[] copy = new Object[array.length + 2];
+			System.arraycopy(array, 0, copy, 0, 2 * idx);
+			copy[2 * idx] = key;
+			copy[2 * idx + 1] = value;
+			System.arraycopy(array, 2 * idx, copy, 2 * idx + 2, array.length - 2 * idx);
+			return new BitmapNode(bitmap | bit, copy);
+		}
+
+		@Override
+		public Node without(int shift, int hash, Object key) {
+			int bit = bit(shift, hash);
+			if ((bitmap & bit) == 0)
+				return this;
+			int idx = index(bit);
+			Object k = array[2 * idx];
+			Object v = array[2 * idx + 1];
+			if (k == null) {
+				Node updated = ((Node) v).without(shift + 5, hash, key);
+				if (updated == v)
+					return this;
+				if (updated != null)
+					return new BitmapNode(bitmap, with(2 * idx + 1, updated));
+			} else if (!key.equals(k))
+				return this;
+
+			if (bitmap == bit)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, 2 * idx);
+			System.arraycopy(array, 2 * idx + 2, copy, 2 * idx, array.length - 2 * idx - 2);
+			return new BitmapNode(bitmap & ~bit, copy);
+		}
+
+		@Override
+		public void forEach(BiConsumer<Object, Object> action) {
+			for (int i = 0; i < array.length; i += 2)
+				if (array[i] == null)
+					((Node) array[i + 1]).forEach(action);
+				else
+					action.accept(array[i], array[i + 1]);
+		}
+	}
+
+	/**
+	 * A leaf holding keys whose hashes are identical.
+	 */
+	private static final class CollisionNode implements Node {
+
+		private final int hash;
+		private final Object[] array;
+
+		private CollisionNode(int hash, Object[] array) {
+			this.hash = hash;
+			this.array = array;
+		}
+
+		private int slotOf(Object key) {
+			for (int i = 0; i < array.length; i += 2)
+				if (key.equals(array[i]))
+					return i;
+			return -1;
+		}
+
+		@Override
+		public Object find(int shift, int hash, Object key) {
+			int slot = slotOf(key);
+			return slot < 0 ? NOT_FOUND : array[slot + 1];
+		}
+
+		@Override
+		public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+			if (hash != this.hash) {
+				// the keys diverge at this level: this node moves one level down
+				Node nested = new BitmapNode(BitmapNode.bit(shift, this.hash), new Object[] { null, this });
+				return nested.assoc(shift, hash, key, value, added);
+			}
+
+			int slot = slotOf(key);
+			if (slot >= 0) {
+				if (value.equals(array[slot + 1]))
+					return this;
+				Object[] copy = array.clone();
+				copy[slot + 1] = value;
+				return new CollisionNode(hash, copy);
+			}
+
+			added[0] = true;
+			Object[] copy = new Object[array.length + 2];
+			System.arraycopy(array, 0, copy, 0, array.length);
+			copy[array.length] = key;
+			copy[array.length + 1] = value;
+			return new CollisionNode(hash, copy);
+		}
+
+		@Override
+		public Node without(int shift, int hash, Object key) {
+			int slot = slotOf(key);
+			if (slot < 0)
+				return this;
+			if (array.length == 2)
+				return null;
+			Object[] copy = new Object[array.length - 2];
+			System.arraycopy(array, 0, copy, 0, slot);
+			System.arraycopy(array, slot + 2, copy, slot, array.length - slot - 2);
+			return new CollisionNode(hash, copy);
+		}
+
+		@Override
+		public void forEach(BiConsumer<Object, Object> action) {
+			for (int i = 0; i < array.length; i += 2)
+				action.accept(array[i], array[i + 1]);
+		}
+	}
+}
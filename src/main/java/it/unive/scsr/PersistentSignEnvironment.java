@@ -0,0 +1,285 @@
+package it.unive.scsr;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * An environment specialized for sign domains, computing the same results of
+ * {@code ValueEnvironment<Signs>} or
+ * {@code ValueEnvironment<ExtSignDomainSolution>} depending on its
+ * {@link SignSemantics}. Bindings are kept in a {@link PersistentHashMap}, so
+ * the environments of consecutive program points share all the bindings that
+ * the statement in between did not touch: an assignment allocates a
+ * logarithmic number of trie nodes instead of copying the whole map, and
+ * statements that do not change any binding reuse the map as is.
+ */
+public class PersistentSignEnvironment extends BaseLattice<PersistentSignEnvironment>
+		implements ValueDomain<PersistentSignEnvironment>, SignSemantics.Store {
+
+	// boxed signs are always the cached instances of Byte.valueOf, so storing
+	// them does not allocate
+	private final PersistentHashMap<Identifier, Byte> bindings;
+
+	private final SignSemantics semantics;
+
+	// the value of the last evaluated expression
+	private final byte stack;
+
+	private final boolean isTop;
+	private final boolean isBottom;
+
+	private int hash;
+
+	public PersistentSignEnvironment() {
+		this(SignSemantics.EXT_SIGNS);
+	}
+
+	public PersistentSignEnvironment(SignSemantics semantics) {
+		this(semantics, PersistentHashMap.empty(), SignSemantics.TOP, true, false);
+	}
+
+	private PersistentSignEnvironment(SignSemantics semantics, PersistentHashMap<Identifier, Byte> bindings,
+			byte stack, boolean isTop, boolean isBottom) {
+		this.semantics = semantics;
+		this.bindings = bindings;
+		this.stack = stack;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private PersistentSignEnvironment mk(PersistentHashMap<Identifier, Byte> bindings, byte stack) {
+		if (bindings == this.bindings && stack == this.stack && !isTop && !isBottom)
+			return this;
+		return new PersistentSignEnvironment(semantics, bindings, stack, false, false);
+	}
+
+	@Override
+	public byte signOf(Identifier id) {
+		if (isTop)
+			return SignSemantics.TOP;
+		if (isBottom)
+			return SignSemantics.BOTTOM;
+
+		Byte sign = bindings.get(id);
+		return sign == null ? SignSemantics.BOTTOM : sign;
+	}
+
+	@Override
+	public PersistentSignEnvironment assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+		if (!SignSemantics.tracks(id, expression))
+			return this;
+
+		byte value = semantics.eval(expression, this);
+		if (id.isWeak()) {
+			Byte old = bindings.get(id);
+			if (old != null)
+				value = semantics.lub(value, old);
+		}
+
+		return mk(bindings.put(id, value), value);
+	}
+
+	@Override
+	public PersistentSignEnvironment smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+
+		return mk(bindings, semantics.eval(expression, this));
+	}
+
+	@Override
+	public PersistentSignEnvironment assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		// sign domains cannot refine the environment with conditions
+		return this;
+	}
+
+	@Override
+	public PersistentSignEnvironment forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		return mk(bindings.remove(id), stack);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom)
+			return Satisfiability.BOTTOM;
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public PersistentSignEnvironment pushScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		return rescope(token, true);
+	}
+
+	@Override
+	public PersistentSignEnvironment popScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom)
+			return this;
+
+		return rescope(token, false);
+	}
+
+	private PersistentSignEnvironment rescope(ScopeToken token, boolean push) throws SemanticException {
+		PersistentHashMap<Identifier, Byte> result = PersistentHashMap.empty();
+		// every key changes, so nothing can be shared with the current map
+		for (Map.Entry<Identifier, Byte> binding : entries(bindings).entrySet()) {
+			Identifier id = binding.getKey();
+			if (push)
+				result = result.put((Identifier) id.pushScope(token), binding.getValue());
+			else if (id instanceof OutOfScopeIdentifier)
+				result = result.put((Identifier) id.popScope(token), binding.getValue());
+		}
+
+		return mk(result, stack);
+	}
+
+	private static Map<Identifier, Byte> entries(PersistentHashMap<Identifier, Byte> bindings) {
+		Map<Identifier, Byte> entries = new HashMap<>(bindings.size() * 2);
+		bindings.forEach(entries::put);
+		return entries;
+	}
+
+	@Override
+	public PersistentSignEnvironment top() {
+		return new PersistentSignEnvironment(semantics, PersistentHashMap.empty(), SignSemantics.TOP, true, false);
+	}
+
+	@Override
+	public PersistentSignEnvironment bottom() {
+		return new PersistentSignEnvironment(semantics, PersistentHashMap.empty(), SignSemantics.BOTTOM, false,
+				true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	protected PersistentSignEnvironment lubAux(PersistentSignEnvironment other) throws SemanticException {
+		byte stack = semantics.lub(this.stack, other.stack);
+		if (bindings.sharesRootWith(other.bindings))
+			return mk(bindings, stack);
+
+		// start from the larger map, so that most of its trie is kept
+		PersistentHashMap<Identifier, Byte> larger = bindings.size() >= other.bindings.size() ? bindings
+				: other.bindings;
+		PersistentHashMap<Identifier, Byte> smaller = larger == bindings ? other.bindings : bindings;
+		@SuppressWarnings("unchecked")
+		PersistentHashMap<Identifier, Byte>[] result = new PersistentHashMap[] { larger };
+		smaller.forEach((id, sign) -> {
+			Byte current = result[0].get(id);
+			result[0] = result[0].put(id, current == null ? sign : semantics.lub(current, sign));
+		});
+		return mk(result[0], stack);
+	}
+
+	@Override
+	protected PersistentSignEnvironment wideningAux(PersistentSignEnvironment other) throws SemanticException {
+		// both sign lattices have finite height, and their widening is the lub
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(PersistentSignEnvironment other) throws SemanticException {
+		if (!SignSemantics.lessOrEqual(stack, other.stack))
+			return false;
+		if (bindings.sharesRootWith(other.bindings))
+			return true;
+
+		boolean[] result = { true };
+		bindings.forEach((id, sign) -> {
+			if (result[0] && !SignSemantics.lessOrEqual(sign, other.signOf(id)))
+				result[0] = false;
+		});
+		return result[0];
+	}
+
+	@Override
+	public int hashCode() {
+		int result = hash;
+		if (result == 0) {
+			// the iteration order of the trie depends on its history, so the
+			// bindings are combined with a commutative operation
+			int[] sum = { 31 * stack + (isTop ? 1 : isBottom ? 2 : 0) };
+			bindings.forEach((id, sign) -> sum[0] += id.hashCode() ^ sign);
+			result = sum[0];
+			hash = result;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		PersistentSignEnvironment other = (PersistentSignEnvironment) obj;
+		if (isTop != other.isTop || isBottom != other.isBottom || stack != other.stack
+				|| semantics != other.semantics || bindings.size() != other.bindings.size())
+			return false;
+		if (bindings.sharesRootWith(other.bindings))
+			return true;
+
+		boolean[] result = { true };
+		bindings.forEach((id, sign) -> {
+			if (result[0] && !sign.equals(other.bindings.get(id)))
+				result[0] = false;
+		});
+		return result[0];
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop)
+			return new StringRepresentation(Lattice.TOP_STRING);
+		if (isBottom)
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+
+		SortedMap<String, String> sorted = new TreeMap<>();
+		bindings.forEach((id, sign) -> sorted.put(id.toString(), semantics.toString(sign)));
+
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, String> binding : sorted.entrySet())
+			builder.append(binding.getKey()).append(": ").append(binding.getValue()).append("\n");
+		builder.append("[stack: ").append(semantics.toString(stack)).append("]");
+		return new StringRepresentation(builder.toString());
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
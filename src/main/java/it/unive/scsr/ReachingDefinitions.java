@@ -1,7 +1,10 @@
 package it.unive.scsr;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -25,19 +28,59 @@ public class ReachingDefinitions
 
 	private final Identifier id;
 	private final CodeLocation point;
+	private final int hash;
+
+	// definitions created during an analysis are interned here: the table is
+	// created by the root instance and shared by all the elements it generates,
+	// so that each definition site exists exactly once
+	private final Map<Identifier, Map<CodeLocation, ReachingDefinitions>> interned;
 
 	public ReachingDefinitions() {
-		this(null, null);
+		this(null, null, new HashMap<>());
 	}
 
 	public ReachingDefinitions(Identifier id, CodeLocation point) {
+		this(id, point, null);
+	}
+
+	private ReachingDefinitions(Identifier id, CodeLocation point,
+			Map<Identifier, Map<CodeLocation, ReachingDefinitions>> interned) {
 		this.id = id;
 		this.point = point;
+		this.interned = interned;
+		// same value of Objects.hash(id, point), without the varargs array
+		this.hash = 31 * (31 + Objects.hashCode(id)) + Objects.hashCode(point);
+	}
+
+	private ReachingDefinitions mk(Identifier id, CodeLocation point) {
+		if (interned == null)
+			return new ReachingDefinitions(id, point);
+
+		Map<CodeLocation, ReachingDefinitions> sites = interned.get(id);
+		if (sites == null) {
+			sites = new HashMap<>();
+			interned.put(id, sites);
+		}
+
+		ReachingDefinitions rd = sites.get(point);
+		if (rd == null) {
+			rd = new ReachingDefinitions(id, point, interned);
+			sites.put(point, rd);
+		}
+		return rd;
+	}
+
+	Identifier getIdentifier() {
+		return id;
+	}
+
+	CodeLocation getLocation() {
+		return point;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(id, point);
+		return hash;
 	}
 
 	@Override
@@ -49,23 +92,23 @@ public class ReachingDefinitions
 		if (getClass() != obj.getClass())
 			return false;
 		ReachingDefinitions other = (ReachingDefinitions) obj;
+		if (interned != null && interned == other.interned)
+			// interned in the same table: identity is equality
+			return false;
+		if (hash != other.hash)
+			return false;
 		return Objects.equals(id, other.id) && Objects.equals(point, other.point);
 	}
 
 	@Override
 	public Collection<Identifier> getInvolvedIdentifiers() {
-		Set<Identifier> result = new HashSet<>();
-		result.add(id);
-		return result;
+		return Collections.singleton(id);
 	}
 
 	@Override
 	public Collection<ReachingDefinitions> gen(Identifier id, ValueExpression expression, ProgramPoint pp,
 			PossibleForwardDataflowDomain<ReachingDefinitions> domain) throws SemanticException {
-		Set<ReachingDefinitions> result = new HashSet<>();
-		ReachingDefinitions rd = new ReachingDefinitions(id, pp.getLocation());
-		result.add(rd);
-		return result;
+		return Collections.singleton(mk(id, pp.getLocation()));
 	}
 
 	@Override
@@ -77,9 +120,24 @@ public class ReachingDefinitions
 	@Override
 	public Collection<ReachingDefinitions> kill(Identifier id, ValueExpression expression, ProgramPoint pp,
 			PossibleForwardDataflowDomain<ReachingDefinitions> domain) throws SemanticException {
+		Set<ReachingDefinitions> elements = domain.getDataflowElements();
 		Set<ReachingDefinitions> result = new HashSet<>();
 
-		for (ReachingDefinitions rd : domain.getDataflowElements())
+		if (interned != null) {
+			// all the definitions of id ever generated are interned here
+			Map<CodeLocation, ReachingDefinitions> sites = interned.get(id);
+			if (sites == null)
+				return result;
+
+			if (sites.size() <= elements.size()) {
+				for (ReachingDefinitions rd : sites.values())
+					if (elements.contains(rd))
+						result.add(rd);
+				return result;
+			}
+		}
+
+		for (ReachingDefinitions rd : elements)
 			if (rd.id.equals(id))
 				result.add(rd);
 
@@ -101,7 +159,7 @@ public class ReachingDefinitions
 
 	@Override
 	public ReachingDefinitions pushScope(ScopeToken token) throws SemanticException {
-		return new ReachingDefinitions((Identifier) id.pushScope(token), point);
+		return mk((Identifier) id.pushScope(token), point);
 	}
 
 	@Override
@@ -109,6 +167,6 @@ public class ReachingDefinitions
 		if (!(id instanceof OutOfScopeIdentifier))
 			return null;
 
-		return new ReachingDefinitions((Identifier) id.popScope(token), point);
+		return mk((Identifier) id.popScope(token), point);
 	}
 }
@@ -0,0 +1,244 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.nonrelational.value.BaseNonRelationalValueDomain;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.DivisionOperator;
+import it.unive.lisa.symbolic.value.operator.Multiplication;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+import it.unive.lisa.symbolic.value.operator.unary.UnaryOperator;
+
+/**
+ * The extended sign domain of {@link ExtSignDomainSolution}, where each value
+ * is represented as the subset of {-, 0, +} it stands for, encoded in the
+ * three lowest bits of a byte. The lub is a bitwise or and the partial order
+ * is subset inclusion, so neither needs branching. Since {-, +} is not an
+ * element of the extended sign lattice, the lub closes it to top by adding 0.
+ * The transfer functions are lifted from the tables of
+ * {@link ExtSignDomainSolution}, so both domains compute the same results.
+ */
+public class SignPowersetDomain extends BaseNonRelationalValueDomain<SignPowersetDomain> {
+
+	static final byte BOTTOM = 0b000;
+	static final byte NEG = 0b001;
+	static final byte ZERO = 0b010;
+	static final byte POS = 0b100;
+	static final byte NEG_OR_ZERO = NEG | ZERO;
+	static final byte POS_OR_ZERO = POS | ZERO;
+	static final byte TOP = NEG | ZERO | POS;
+
+	// canonical instances, indexed by mask
+	private static final SignPowersetDomain[] VALUES = new SignPowersetDomain[8];
+
+	// the mask corresponding to each value of ExtSignDomainSolution.Sign,
+	// indexed by ordinal, and vice versa
+	private static final byte[] FROM_SIGN = { BOTTOM, TOP, POS, NEG, ZERO, POS_OR_ZERO, NEG_OR_ZERO };
+	private static final byte[] TO_SIGN = new byte[8];
+
+	private static final String[] REPRESENTATION = new String[8];
+
+	private static final byte[] MINUS = new byte[8];
+	private static final byte[][] ADD = new byte[8][8];
+	private static final byte[][] SUB = new byte[8][8];
+	private static final byte[][] MUL = new byte[8][8];
+	private static final byte[][] DIV = new byte[8][8];
+
+	/**
+	 * An operator of {@link ExtSignDomainSolution}, on ordinals.
+	 */
+	private interface Operator {
+
+		byte apply(byte left, byte right);
+	}
+
+	static {
+		ExtSignDomainSolution.Sign[] signs = ExtSignDomainSolution.Sign.values();
+		// {-, +} never appears since lub closes it, but we map it to top
+		// to keep the tables total
+		TO_SIGN[NEG | POS] = ExtSignDomainSolution.TOP;
+		REPRESENTATION[NEG | POS] = Lattice.TOP_STRING;
+		for (byte ordinal = 0; ordinal < FROM_SIGN.length; ordinal++) {
+			TO_SIGN[FROM_SIGN[ordinal]] = ordinal;
+			REPRESENTATION[FROM_SIGN[ordinal]] = signs[ordinal].toString();
+		}
+
+		for (byte mask = 0; mask < VALUES.length; mask++) {
+			VALUES[mask] = new SignPowersetDomain(mask);
+			MINUS[mask] = FROM_SIGN[ExtSignDomainSolution.minus(TO_SIGN[mask])];
+			for (byte other = 0; other < VALUES.length; other++) {
+				ADD[mask][other] = lift(ExtSignDomainSolution::add, mask, other);
+				SUB[mask][other] = lift(ExtSignDomainSolution::sub, mask, other);
+				MUL[mask][other] = lift(ExtSignDomainSolution::mul, mask, other);
+				DIV[mask][other] = lift(ExtSignDomainSolution::div, mask, other);
+			}
+		}
+	}
+
+	private static byte lift(Operator operator, byte left, byte right) {
+		return FROM_SIGN[operator.apply(TO_SIGN[left], TO_SIGN[right])];
+	}
+
+	private final byte mask;
+
+	public SignPowersetDomain() {
+		this(TOP);
+	}
+
+	private SignPowersetDomain(byte mask) {
+		this.mask = mask;
+	}
+
+	static SignPowersetDomain of(byte mask) {
+		return VALUES[mask];
+	}
+
+	byte mask() {
+		return mask;
+	}
+
+	/**
+	 * Joins two masks: if the union contains both - and +, 0 is added too.
+	 */
+	static byte lub(byte left, byte right) {
+		int union = left | right;
+		return (byte) (union | ((union & (union >> 2) & 1) << 1));
+	}
+
+	static boolean lessOrEqual(byte left, byte right) {
+		return (left & ~right) == 0;
+	}
+
+	/**
+	 * Yields a copy of the table of the negation, indexed by mask.
+	 */
+	static byte[] minusTable() {
+		return MINUS.clone();
+	}
+
+	/**
+	 * Yields a copy of the table of the given binary operator, indexed by
+	 * the masks of the operands, or {@code null} if the operator is not
+	 * tracked by this domain.
+	 */
+	static byte[][] binaryTable(BinaryOperator operator) {
+		byte[][] table = tableOf(operator);
+		if (table == null)
+			return null;
+		byte[][] copy = new byte[table.length][];
+		for (int i = 0; i < table.length; i++)
+			copy[i] = table[i].clone();
+		return copy;
+	}
+
+	private static byte[][] tableOf(BinaryOperator operator) {
+		if (operator instanceof AdditionOperator)
+			return ADD;
+		if (operator instanceof DivisionOperator)
+			return DIV;
+		if (operator instanceof Multiplication)
+			return MUL;
+		if (operator instanceof SubtractionOperator)
+			return SUB;
+		return null;
+	}
+
+	static String toString(byte mask) {
+		return REPRESENTATION[mask];
+	}
+
+	@Override
+	public SignPowersetDomain top() {
+		return VALUES[TOP];
+	}
+
+	@Override
+	public SignPowersetDomain bottom() {
+		return VALUES[BOTTOM];
+	}
+
+	@Override
+	public boolean isTop() {
+		return mask == TOP;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return mask == BOTTOM;
+	}
+
+	@Override
+	protected SignPowersetDomain evalNonNullConstant(Constant constant, ProgramPoint pp) {
+		if (constant.getValue() instanceof Integer) {
+			int c = (int) constant.getValue();
+			if (c == 0)
+				return VALUES[ZERO];
+			else if (c > 0)
+				return VALUES[POS];
+			else
+				return VALUES[NEG];
+		}
+		return top();
+	}
+
+	@Override
+	protected SignPowersetDomain evalUnaryExpression(UnaryOperator operator, SignPowersetDomain arg,
+			ProgramPoint pp) {
+		if (operator instanceof NumericNegation)
+			return VALUES[MINUS[arg.mask]];
+		return top();
+	}
+
+	@Override
+	protected SignPowersetDomain evalBinaryExpression(BinaryOperator operator, SignPowersetDomain left,
+			SignPowersetDomain right, ProgramPoint pp) {
+		byte[][] table = tableOf(operator);
+		if (table == null)
+			return top();
+
+		return VALUES[table[left.mask][right.mask]];
+	}
+
+	@Override
+	protected SignPowersetDomain lubAux(SignPowersetDomain other) throws SemanticException {
+		return VALUES[lub(mask, other.mask)];
+	}
+
+	@Override
+	protected SignPowersetDomain wideningAux(SignPowersetDomain other) throws SemanticException {
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(SignPowersetDomain other) throws SemanticException {
+		return lessOrEqual(mask, other.mask);
+	}
+
+	@Override
+	public int hashCode() {
+		return mask;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SignPowersetDomain other = (SignPowersetDomain) obj;
+		return mask == other.mask;
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		return new StringRepresentation(REPRESENTATION[mask]);
+	}
+}
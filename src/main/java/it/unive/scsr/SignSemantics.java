@@ -0,0 +1,289 @@
+package it.unive.scsr;
+
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.symbolic.value.BinaryExpression;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.PushAny;
+import it.unive.lisa.symbolic.value.Skip;
+import it.unive.lisa.symbolic.value.UnaryExpression;
+import it.unive.lisa.symbolic.value.ValueExpression;
+import it.unive.lisa.symbolic.value.operator.AdditionOperator;
+import it.unive.lisa.symbolic.value.operator.DivisionOperator;
+import it.unive.lisa.symbolic.value.operator.Multiplication;
+import it.unive.lisa.symbolic.value.operator.SubtractionOperator;
+import it.unive.lisa.symbolic.value.operator.binary.BinaryOperator;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.symbolic.value.operator.unary.NumericNegation;
+
+/**
+ * The sign lattices that the environments specialized for signs can track.
+ * Values are encoded as in {@link SignPowersetDomain}, that is, as the subset
+ * of {-, 0, +} they stand for in the three lowest bits of a byte, and each
+ * lattice decides how unions of such subsets are closed. The transfer
+ * functions are lifted from the corresponding domain, so that a specialized
+ * environment computes the same results of a {@code ValueEnvironment} over
+ * that domain.
+ */
+public enum SignSemantics {
+
+	/**
+	 * The flat lattice of {@link Signs}: joining two different signs yields
+	 * top.
+	 */
+	SIGNS(false) {
+
+		@Override
+		byte close(int mask) {
+			return Integer.bitCount(mask) > 1 ? TOP : (byte) mask;
+		}
+
+		@Override
+		long closeLanes(long lanes) {
+			long neg = lanes & LOW;
+			long zero = (lanes >>> 1) & LOW;
+			long pos = (lanes >>> 2) & LOW;
+			long many = (neg & zero) | (zero & pos) | (neg & pos);
+			// lanes are 3 bits wide, so multiplying by 7 fills each of them
+			// without carries
+			return lanes | (many * TOP);
+		}
+	},
+
+	/**
+	 * The extended sign lattice of {@link ExtSignDomainSolution}: joining -
+	 * and + yields top.
+	 */
+	EXT_SIGNS(true) {
+
+		@Override
+		byte close(int mask) {
+			return SignPowersetDomain.lub((byte) mask, BOTTOM);
+		}
+
+		@Override
+		long closeLanes(long lanes) {
+			return lanes | (((lanes >>> 2) & lanes & LOW) << 1);
+		}
+	};
+
+	static final byte BOTTOM = SignPowersetDomain.BOTTOM;
+	static final byte NEG = SignPowersetDomain.NEG;
+	static final byte ZERO = SignPowersetDomain.ZERO;
+	static final byte POS = SignPowersetDomain.POS;
+	static final byte TOP = SignPowersetDomain.TOP;
+
+	/**
+	 * The number of bits used by each value when packed into a word.
+	 */
+	static final int LANE_BITS = 3;
+
+	/**
+	 * The number of values that fit in a word.
+	 */
+	static final int LANES = Long.SIZE / LANE_BITS;
+
+	/**
+	 * The lowest bit of each lane of a word.
+	 */
+	static final long LOW = 0x1249249249249249L;
+
+	/**
+	 * Reads the signs of identifiers while evaluating expressions.
+	 */
+	interface Store {
+
+		byte signOf(Identifier id);
+	}
+
+	private final byte[] minus;
+	private final byte[][] add;
+	private final byte[][] sub;
+	private final byte[][] mul;
+	private final byte[][] div;
+	private final String[] representation;
+
+	private SignSemantics(boolean extended) {
+		if (extended) {
+			minus = SignPowersetDomain.minusTable();
+			add = SignPowersetDomain.binaryTable(NumericNonOverflowingAdd.INSTANCE);
+			sub = SignPowersetDomain.binaryTable(NumericNonOverflowingSub.INSTANCE);
+			mul = SignPowersetDomain.binaryTable(NumericNonOverflowingMul.INSTANCE);
+			div = SignPowersetDomain.binaryTable(NumericNonOverflowingDiv.INSTANCE);
+			representation = new String[8];
+			for (byte mask = 0; mask < representation.length; mask++)
+				representation[mask] = SignPowersetDomain.toString(mask);
+		} else {
+			minus = SignsLifting.minus();
+			add = SignsLifting.lift(NumericNonOverflowingAdd.INSTANCE);
+			sub = SignsLifting.lift(NumericNonOverflowingSub.INSTANCE);
+			mul = SignsLifting.lift(NumericNonOverflowingMul.INSTANCE);
+			div = SignsLifting.lift(NumericNonOverflowingDiv.INSTANCE);
+			representation = SignsLifting.representation();
+		}
+	}
+
+	/**
+	 * Closes the union of some signs to an element of this lattice.
+	 */
+	abstract byte close(int mask);
+
+	/**
+	 * Closes each lane of a word holding the union of packed signs.
+	 */
+	abstract long closeLanes(long lanes);
+
+	byte lub(byte left, byte right) {
+		return close(left | right);
+	}
+
+	long lubLanes(long left, long right) {
+		return closeLanes(left | right);
+	}
+
+	static boolean lessOrEqual(byte left, byte right) {
+		return (left & ~right) == 0;
+	}
+
+	static boolean lessOrEqualLanes(long left, long right) {
+		return (left & ~right) == 0;
+	}
+
+	/**
+	 * Yields whether an environment should bind {@code id} to the value of
+	 * {@code expression}. These are the same checks that
+	 * {@code ValueEnvironment} performs before assigning: identifiers whose
+	 * types are all pointer types are left to the heap domain.
+	 */
+	static boolean tracks(Identifier id, ValueExpression expression) {
+		return Filter.DOMAIN.canProcess(expression) && Filter.DOMAIN.tracksIdentifiers(id);
+	}
+
+	String toString(byte sign) {
+		return representation[sign];
+	}
+
+	byte eval(ValueExpression expression, Store store) {
+		if (expression instanceof Identifier)
+			return store.signOf((Identifier) expression);
+
+		if (expression instanceof Skip)
+			return BOTTOM;
+
+		if (expression instanceof PushAny)
+			return TOP;
+
+		if (expression instanceof Constant) {
+			Object value = ((Constant) expression).getValue();
+			if (!(value instanceof Integer))
+				return TOP;
+			int c = (Integer) value;
+			return c == 0 ? ZERO : c > 0 ? POS : NEG;
+		}
+
+		if (expression instanceof UnaryExpression) {
+			UnaryExpression unary = (UnaryExpression) expression;
+			byte arg = eval((ValueExpression) unary.getExpression(), store);
+			if (arg == BOTTOM)
+				return BOTTOM;
+			return unary.getOperator() instanceof NumericNegation ? minus[arg] : TOP;
+		}
+
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression binary = (BinaryExpression) expression;
+			byte left = eval((ValueExpression) binary.getLeft(), store);
+			if (left == BOTTOM)
+				return BOTTOM;
+			byte right = eval((ValueExpression) binary.getRight(), store);
+			if (right == BOTTOM)
+				return BOTTOM;
+
+			BinaryOperator operator = binary.getOperator();
+			if (operator instanceof AdditionOperator)
+				return add[left][right];
+			if (operator instanceof DivisionOperator)
+				return div[left][right];
+			if (operator instanceof Multiplication)
+				return mul[left][right];
+			if (operator instanceof SubtractionOperator)
+				return sub[left][right];
+			return TOP;
+		}
+
+		return TOP;
+	}
+
+	/**
+	 * Holds the non-relational domain whose filters {@link #tracks} reuses.
+	 */
+	private static class Filter {
+
+		private static final Signs DOMAIN = new Signs();
+	}
+
+	/**
+	 * Builds the tables of {@link #SIGNS} by querying {@link Signs} on every
+	 * pair of values. This lives in its own class since the enumeration's
+	 * static fields are not yet initialized when its constructor runs.
+	 */
+	private static class SignsLifting {
+
+		private static final Signs.Sign[] SIGNS = { Signs.Sign.BOTTOM, Signs.Sign.MINUS, Signs.Sign.ZERO,
+				Signs.Sign.PLUS, Signs.Sign.TOP };
+		private static final byte[] MASKS = { BOTTOM, NEG, ZERO, POS, TOP };
+
+		private static Signs toSigns(byte mask) {
+			for (int i = 0; i < MASKS.length; i++)
+				if (MASKS[i] == mask)
+					return new Signs(SIGNS[i]);
+			// not an element of the flat lattice
+			return new Signs(Signs.Sign.TOP);
+		}
+
+		private static byte toMask(Signs value) {
+			for (int i = 0; i < SIGNS.length; i++)
+				if (value.equals(new Signs(SIGNS[i])))
+					return MASKS[i];
+			return TOP;
+		}
+
+		private static byte[] minus() {
+			byte[] table = new byte[8];
+			try {
+				for (byte mask = 0; mask < table.length; mask++) {
+					Signs arg = toSigns(mask);
+					table[mask] = toMask(arg.evalUnaryExpression(NumericNegation.INSTANCE, arg, null));
+				}
+			} catch (SemanticException e) {
+				throw new IllegalStateException("Signs failed to evaluate a negation", e);
+			}
+			table[BOTTOM] = BOTTOM;
+			return table;
+		}
+
+		private static byte[][] lift(BinaryOperator operator) {
+			byte[][] table = new byte[8][8];
+			try {
+				for (byte left = 0; left < table.length; left++)
+					for (byte right = 0; right < table.length; right++)
+						if (left != BOTTOM && right != BOTTOM) {
+							Signs l = toSigns(left);
+							table[left][right] = toMask(l.evalBinaryExpression(operator, l, toSigns(right), null));
+						}
+			} catch (SemanticException e) {
+				throw new IllegalStateException("Signs failed to evaluate " + operator, e);
+			}
+			return table;
+		}
+
+		private static String[] representation() {
+			String[] table = new String[8];
+			for (byte mask = 0; mask < table.length; mask++)
+				table[mask] = toSigns(mask).representation().toString();
+			return table;
+		}
+	}
+}
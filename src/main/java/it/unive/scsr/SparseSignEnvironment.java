@@ -0,0 +1,471 @@
+package it.unive.scsr;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import it.unive.lisa.analysis.BaseLattice;
+import it.unive.lisa.analysis.Lattice;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticDomain.Satisfiability;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.representation.DomainRepresentation;
+import it.unive.lisa.analysis.representation.StringRepresentation;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.ProgramPoint;
+import it.unive.lisa.symbolic.value.Identifier;
+import it.unive.lisa.symbolic.value.OutOfScopeIdentifier;
+import it.unive.lisa.symbolic.value.ValueExpression;
+
+/**
+ * An environment specialized for sign domains, computing the same results of
+ * {@code ValueEnvironment<Signs>} or
+ * {@code ValueEnvironment<ExtSignDomainSolution>} depending on its
+ * {@link SignSemantics}, where top is the implicit value of every bound
+ * variable. Only bindings to a value other than top are stored, as a sorted
+ * array of variable indexes (see {@link VariableIndex}) with their values,
+ * while a bit vector records which variables are bound at all: unbound
+ * variables are bottom, and they must not be rendered. Since most variables
+ * of our programs end up at top, lub, widening and lessOrEqual only walk the
+ * few explicit bindings plus a word operation on the bit vectors. When
+ * pruning is enabled, each assignment also drops the bindings of the
+ * variables that are dead after it (see {@link LiveVariables}), which does
+ * not change the values of live variables.
+ */
+public class SparseSignEnvironment extends BaseLattice<SparseSignEnvironment>
+		implements ValueDomain<SparseSignEnvironment>, SignSemantics.Store {
+
+	private static final long[] NO_WORDS = new long[0];
+	private static final int[] NO_KEYS = new int[0];
+	private static final byte[] NO_VALUES = new byte[0];
+
+	private final SignSemantics semantics;
+	private final Map<CFG, VariableIndex> indexes;
+	private final VariableIndex variables;
+
+	// the live variables of each CFG, or null if pruning is disabled
+	private final Map<CFG, LiveVariables> liveness;
+
+	// the variables that have a binding, one per bit
+	private final long[] bound;
+
+	// the bindings to a value other than top, sorted by variable index
+	private final int[] keys;
+	private final byte[] values;
+
+	// the value of the last evaluated expression
+	private final byte stack;
+
+	private final boolean isTop;
+	private final boolean isBottom;
+
+	public SparseSignEnvironment() {
+		this(SignSemantics.EXT_SIGNS);
+	}
+
+	public SparseSignEnvironment(SignSemantics semantics) {
+		this(semantics, false);
+	}
+
+	/**
+	 * Builds the environment, dropping the bindings of dead variables if
+	 * {@code prune} is set.
+	 */
+	public SparseSignEnvironment(SignSemantics semantics, boolean prune) {
+		this(semantics, new HashMap<>(), prune ? new HashMap<>() : null, null, NO_WORDS, NO_KEYS, NO_VALUES,
+				SignSemantics.TOP, true, false);
+	}
+
+	private SparseSignEnvironment(SignSemantics semantics, Map<CFG, VariableIndex> indexes,
+			Map<CFG, LiveVariables> liveness, VariableIndex variables, long[] bound, int[] keys, byte[] values,
+			byte stack, boolean isTop, boolean isBottom) {
+		this.semantics = semantics;
+		this.indexes = indexes;
+		this.liveness = liveness;
+		this.variables = variables;
+		this.bound = bound;
+		this.keys = keys;
+		this.values = values;
+		this.stack = stack;
+		this.isTop = isTop;
+		this.isBottom = isBottom;
+	}
+
+	private SparseSignEnvironment mk(VariableIndex variables, long[] bound, int[] keys, byte[] values, byte stack) {
+		return new SparseSignEnvironment(semantics, indexes, liveness, variables, bound, keys, values, stack, false,
+				false);
+	}
+
+	private VariableIndex variablesOf(ProgramPoint pp) {
+		if (variables != null)
+			return variables;
+		return indexes.computeIfAbsent(pp.getCFG(), cfg -> new VariableIndex());
+	}
+
+	private static boolean isBound(long[] bound, int index) {
+		int word = index / Long.SIZE;
+		return word < bound.length && (bound[word] & (1L << index)) != 0;
+	}
+
+	private static long word(long[] words, int index) {
+		return index < words.length ? words[index] : 0L;
+	}
+
+	private byte valueAt(int index) {
+		if (!isBound(bound, index))
+			return SignSemantics.BOTTOM;
+		int pos = Arrays.binarySearch(keys, index);
+		return pos < 0 ? SignSemantics.TOP : values[pos];
+	}
+
+	@Override
+	public byte signOf(Identifier id) {
+		if (isTop)
+			return SignSemantics.TOP;
+		if (isBottom || variables == null)
+			return SignSemantics.BOTTOM;
+
+		int index = variables.find(id);
+		return index < 0 ? SignSemantics.BOTTOM : valueAt(index);
+	}
+
+	/**
+	 * Yields a copy of this environment where the variable with the given
+	 * index is bound to the given value, or unbound if {@code bind} is false.
+	 */
+	private SparseSignEnvironment update(VariableIndex variables, int index, boolean bind, byte value, byte stack) {
+		int word = index / Long.SIZE;
+		long[] bound = this.bound.length > word ? this.bound.clone() : Arrays.copyOf(this.bound, word + 1);
+		if (bind)
+			bound[word] |= 1L << index;
+		else
+			bound[word] &= ~(1L << index);
+
+		int[] keys = this.keys;
+		byte[] values = this.values;
+		int pos = Arrays.binarySearch(keys, index);
+		boolean explicit = bind && value != SignSemantics.TOP;
+		if (pos >= 0 && explicit) {
+			values = values.clone();
+			values[pos] = value;
+		} else if (pos >= 0) {
+			keys = new int[this.keys.length - 1];
+			values = new byte[keys.length];
+			System.arraycopy(this.keys, 0, keys, 0, pos);
+			System.arraycopy(this.keys, pos + 1, keys, pos, keys.length - pos);
+			System.arraycopy(this.values, 0, values, 0, pos);
+			System.arraycopy(this.values, pos + 1, values, pos, values.length - pos);
+		} else if (explicit) {
+			int insert = -pos - 1;
+			keys = new int[this.keys.length + 1];
+			values = new byte[keys.length];
+			System.arraycopy(this.keys, 0, keys, 0, insert);
+			System.arraycopy(this.keys, insert, keys, insert + 1, this.keys.length - insert);
+			System.arraycopy(this.values, 0, values, 0, insert);
+			System.arraycopy(this.values, insert, values, insert + 1, this.values.length - insert);
+			keys[insert] = index;
+			values[insert] = value;
+		}
+
+		return mk(variables, bound, keys, values, stack);
+	}
+
+	@Override
+	public SparseSignEnvironment assign(Identifier id, ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+		if (!SignSemantics.tracks(id, expression))
+			return this;
+
+		byte value = semantics.eval(expression, this);
+		VariableIndex variables = variablesOf(pp);
+		int index = variables.indexOf(id);
+		if (id.isWeak() && isBound(bound, index))
+			value = semantics.lub(value, valueAt(index));
+
+		return update(variables, index, true, value, value).prune(pp);
+	}
+
+	/**
+	 * Yields this environment without the bindings of the variables that are
+	 * dead after the given program point, if pruning is enabled.
+	 */
+	private SparseSignEnvironment prune(ProgramPoint pp) {
+		if (liveness == null)
+			return this;
+
+		LiveVariables live = liveness.computeIfAbsent(pp.getCFG(), LiveVariables::of);
+		long[] bound = null;
+		for (int word = 0; word < this.bound.length; word++)
+			for (long bits = this.bound[word]; bits != 0; bits &= bits - 1) {
+				int index = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+				if (live.isDeadAfter(pp, variables.get(index))) {
+					if (bound == null)
+						bound = this.bound.clone();
+					bound[word] &= ~(1L << index);
+				}
+			}
+		if (bound == null)
+			return this;
+
+		int size = 0;
+		int[] keys = new int[this.keys.length];
+		byte[] values = new byte[keys.length];
+		for (int i = 0; i < this.keys.length; i++)
+			if (isBound(bound, this.keys[i])) {
+				keys[size] = this.keys[i];
+				values[size] = this.values[i];
+				size++;
+			}
+
+		return mk(variables, bound, Arrays.copyOf(keys, size), Arrays.copyOf(values, size), stack);
+	}
+
+	@Override
+	public SparseSignEnvironment smallStepSemantics(ValueExpression expression, ProgramPoint pp)
+			throws SemanticException {
+		if (isBottom)
+			return this;
+
+		return mk(variables, bound, keys, values, semantics.eval(expression, this));
+	}
+
+	@Override
+	public SparseSignEnvironment assume(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		// sign domains cannot refine the environment with conditions
+		return this;
+	}
+
+	@Override
+	public SparseSignEnvironment forgetIdentifier(Identifier id) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		int index = variables.find(id);
+		if (index < 0 || !isBound(bound, index))
+			return this;
+
+		return update(variables, index, false, SignSemantics.BOTTOM, stack);
+	}
+
+	@Override
+	public Satisfiability satisfies(ValueExpression expression, ProgramPoint pp) throws SemanticException {
+		if (isBottom)
+			return Satisfiability.BOTTOM;
+		return Satisfiability.UNKNOWN;
+	}
+
+	@Override
+	public SparseSignEnvironment pushScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		return rescope(token, true);
+	}
+
+	@Override
+	public SparseSignEnvironment popScope(ScopeToken token) throws SemanticException {
+		if (isTop || isBottom || variables == null)
+			return this;
+
+		return rescope(token, false);
+	}
+
+	private SparseSignEnvironment rescope(ScopeToken token, boolean push) throws SemanticException {
+		SparseSignEnvironment result = mk(variables, NO_WORDS, NO_KEYS, NO_VALUES, stack);
+		// scoping creates new variables, so we only visit the ones that
+		// existed before starting
+		int count = variables.size();
+		for (int i = 0; i < count; i++) {
+			if (!isBound(bound, i))
+				continue;
+
+			Identifier id = variables.get(i);
+			Identifier scoped;
+			if (push)
+				scoped = (Identifier) id.pushScope(token);
+			else if (id instanceof OutOfScopeIdentifier)
+				scoped = (Identifier) id.popScope(token);
+			else
+				continue;
+
+			result = result.update(variables, variables.indexOf(scoped), true, valueAt(i), stack);
+		}
+
+		return result;
+	}
+
+	@Override
+	public SparseSignEnvironment top() {
+		return new SparseSignEnvironment(semantics, indexes, liveness, null, NO_WORDS, NO_KEYS, NO_VALUES,
+				SignSemantics.TOP, true, false);
+	}
+
+	@Override
+	public SparseSignEnvironment bottom() {
+		return new SparseSignEnvironment(semantics, indexes, liveness, null, NO_WORDS, NO_KEYS, NO_VALUES,
+				SignSemantics.BOTTOM, false, true);
+	}
+
+	@Override
+	public boolean isTop() {
+		return isTop;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return isBottom;
+	}
+
+	@Override
+	protected SparseSignEnvironment lubAux(SparseSignEnvironment other) throws SemanticException {
+		long[] bound = new long[Math.max(this.bound.length, other.bound.length)];
+		for (int i = 0; i < bound.length; i++)
+			bound[i] = word(this.bound, i) | word(other.bound, i);
+
+		// a variable missing from one side is either top there, in which case
+		// it is top in the result, or unbound, in which case it keeps the
+		// value of the other side
+		int[] keys = new int[this.keys.length + other.keys.length];
+		byte[] values = new byte[keys.length];
+		int size = 0;
+		int i = 0, j = 0;
+		while (i < this.keys.length || j < other.keys.length) {
+			int key;
+			byte value;
+			if (j == other.keys.length || (i < this.keys.length && this.keys[i] < other.keys[j])) {
+				key = this.keys[i];
+				value = isBound(other.bound, key) ? SignSemantics.TOP : this.values[i];
+				i++;
+			} else if (i == this.keys.length || other.keys[j] < this.keys[i]) {
+				key = other.keys[j];
+				value = isBound(this.bound, key) ? SignSemantics.TOP : other.values[j];
+				j++;
+			} else {
+				key = this.keys[i];
+				value = semantics.lub(this.values[i], other.values[j]);
+				i++;
+				j++;
+			}
+
+			if (value != SignSemantics.TOP) {
+				keys[size] = key;
+				values[size] = value;
+				size++;
+			}
+		}
+
+		return mk(variables != null ? variables : other.variables, bound,
+				size == keys.length ? keys : Arrays.copyOf(keys, size),
+				size == values.length ? values : Arrays.copyOf(values, size),
+				semantics.lub(stack, other.stack));
+	}
+
+	@Override
+	protected SparseSignEnvironment wideningAux(SparseSignEnvironment other) throws SemanticException {
+		// both sign lattices have finite height, and their widening is the lub
+		return lubAux(other);
+	}
+
+	@Override
+	protected boolean lessOrEqualAux(SparseSignEnvironment other) throws SemanticException {
+		if (!SignSemantics.lessOrEqual(stack, other.stack))
+			return false;
+
+		// explicit bindings of this environment that are unbound in the other
+		// one, which are fine only if bottom
+		int unboundInOther = 0;
+		int i = 0, j = 0;
+		while (i < keys.length || j < other.keys.length) {
+			if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+				if (!isBound(other.bound, keys[i])) {
+					if (values[i] != SignSemantics.BOTTOM)
+						return false;
+					unboundInOther++;
+				}
+				// otherwise the other value is top
+				i++;
+			} else if (i == keys.length || other.keys[j] < keys[i]) {
+				// this value is either top, which is not below a value other
+				// than top, or bottom
+				if (isBound(bound, other.keys[j]))
+					return false;
+				j++;
+			} else {
+				if (!SignSemantics.lessOrEqual(values[i], other.values[j]))
+					return false;
+				i++;
+				j++;
+			}
+		}
+
+		// every other variable bound here and unbound in the other
+		// environment is top, and top is not below bottom
+		int boundOnlyHere = 0;
+		for (int w = 0; w < bound.length; w++)
+			boundOnlyHere += Long.bitCount(bound[w] & ~word(other.bound, w));
+		return boundOnlyHere == unboundInOther;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 31 * stack + (isTop ? 1 : isBottom ? 2 : 0);
+		// trailing zeros must not change the hash, as they do not change
+		// equality
+		for (int i = 0; i < bound.length; i++)
+			if (bound[i] != 0)
+				result = 31 * result + Long.hashCode(bound[i]) + i;
+		result = 31 * result + Arrays.hashCode(keys);
+		return 31 * result + Arrays.hashCode(values);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SparseSignEnvironment other = (SparseSignEnvironment) obj;
+		// keys are positions in the variable index, so they can only be
+		// compared within the same index
+		if (isTop != other.isTop || isBottom != other.isBottom || stack != other.stack
+				|| semantics != other.semantics || variables != other.variables)
+			return false;
+
+		for (int i = Math.max(bound.length, other.bound.length) - 1; i >= 0; i--)
+			if (word(bound, i) != word(other.bound, i))
+				return false;
+		return Arrays.equals(keys, other.keys) && Arrays.equals(values, other.values);
+	}
+
+	@Override
+	public DomainRepresentation representation() {
+		if (isTop)
+			return new StringRepresentation(Lattice.TOP_STRING);
+		if (isBottom)
+			return new StringRepresentation(Lattice.BOTTOM_STRING);
+
+		SortedMap<String, String> bindings = new TreeMap<>();
+		if (variables != null)
+			for (int i = 0; i < variables.size(); i++)
+				if (isBound(bound, i))
+					bindings.put(variables.get(i).toString(), semantics.toString(valueAt(i)));
+
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<String, String> binding : bindings.entrySet())
+			builder.append(binding.getKey()).append(": ").append(binding.getValue()).append("\n");
+		builder.append("[stack: ").append(semantics.toString(stack)).append("]");
+		return new StringRepresentation(builder.toString());
+	}
+
+	@Override
+	public String toString() {
+		return representation().toString();
+	}
+}
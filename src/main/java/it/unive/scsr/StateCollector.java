@@ -0,0 +1,83 @@
+package it.unive.scsr;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import it.unive.lisa.analysis.AbstractState;
+import it.unive.lisa.analysis.CFGWithAnalysisResults;
+import it.unive.lisa.analysis.heap.HeapDomain;
+import it.unive.lisa.analysis.value.TypeDomain;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.checks.semantic.CheckToolWithAnalysisResults;
+import it.unive.lisa.checks.semantic.SemanticCheck;
+import it.unive.lisa.program.CompilationUnit;
+import it.unive.lisa.program.Global;
+import it.unive.lisa.program.Unit;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.edge.Edge;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+/**
+ * A semantic check that raises no warnings, and instead records the
+ * representation of the state computed after each statement, keyed by the
+ * signature of its CFG and by the location and text of the statement. This
+ * gives the results of an analysis in memory, without dumping and parsing
+ * dot files.
+ */
+public class StateCollector<A extends AbstractState<A, H, V, T>,
+		H extends HeapDomain<H>,
+		V extends ValueDomain<V>,
+		T extends TypeDomain<T>> implements SemanticCheck<A, H, V, T> {
+
+	private final Map<String, String> states = new TreeMap<>();
+
+	/**
+	 * Yields the collected states.
+	 */
+	public synchronized Map<String, String> getStates() {
+		return states;
+	}
+
+	@Override
+	public void beforeExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+	}
+
+	@Override
+	public void afterExecution(CheckToolWithAnalysisResults<A, H, V, T> tool) {
+	}
+
+	@Override
+	public boolean visitCompilationUnit(CheckToolWithAnalysisResults<A, H, V, T> tool, CompilationUnit unit) {
+		return true;
+	}
+
+	@Override
+	public void visitGlobal(CheckToolWithAnalysisResults<A, H, V, T> tool, Unit unit, Global global,
+			boolean instance) {
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph) {
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Statement node) {
+		StringBuilder builder = new StringBuilder();
+		for (CFGWithAnalysisResults<A, H, V, T> result : tool.getResultOf(graph)) {
+			if (builder.length() > 0)
+				builder.append('\n');
+			builder.append(result.getAnalysisStateAfter(node).representation());
+		}
+		String key = graph.getDescriptor().getFullSignatureWithParNames() + " " + node.getLocation() + " " + node;
+		synchronized (this) {
+			states.put(key, builder.toString());
+		}
+		return true;
+	}
+
+	@Override
+	public boolean visit(CheckToolWithAnalysisResults<A, H, V, T> tool, CFG graph, Edge edge) {
+		return true;
+	}
+}
@@ -0,0 +1,372 @@
+package it.unive.scsr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DataflowElement;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.NonRelationalValueDomain;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+/**
+ * Evaluates many submissions, as a faster alternative to building and testing
+ * each branch with Gradle. The results of the reference solutions are
+ * computed once, in memory, through a {@link StateCollector}. Then, for each
+ * submission (a directory with the layout of this project, e.g. a worktree
+ * created by {@code tester.sh}), the sources under {@code src/main/java} are
+ * compiled once with the system Java compiler, and each task runs in a worker
+ * JVM of its own. The worker loads the classes of this project from the
+ * submission first, and everything else (LiSA in particular) from the class
+ * path of this JVM, and hands the results back through a file to be compared
+ * with the reference ones.
+ * <p>
+ * A worker that does not finish within the timeout is killed, reporting
+ * {@code timed out}, so that an analysis that does not converge does not
+ * block the other tasks, and a submission calling {@link System#exit(int)}
+ * only terminates its own worker.
+ * <p>
+ * Usage: {@code SubmissionEvaluator <submission directory>...}, printing one
+ * tab-separated line for each submission, that also reports any problem in
+ * compiling or running it.
+ */
+public class SubmissionEvaluator {
+
+	private static final String PACKAGE = "it.unive.scsr.";
+
+	private static final long DEFAULT_TIMEOUT_SECONDS = 60;
+
+	// the first argument that makes main run a single task of a submission
+	private static final String WORKER = "--worker";
+
+	// the first line of the results of a worker that completed its task; any
+	// other first line is the reason why it did not
+	private static final String STATES = "states";
+
+	/**
+	 * A task: the class of the submission implementing it, how to build the
+	 * abstract state out of an instance of that class, and the program it is
+	 * run on.
+	 */
+	private static final class Task {
+		final String name;
+		final String className;
+		final Function<Object, SimpleAbstractState<?, ?, ?>> state;
+		final String input;
+
+		Task(String name, String className, Function<Object, SimpleAbstractState<?, ?, ?>> state, String input) {
+			this.name = name;
+			this.className = className;
+			this.state = state;
+			this.input = input;
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static final List<Task> TASKS = Arrays.asList(
+			new Task("ext-sign", "ExtSignDomain",
+					domain -> new SimpleAbstractState<>(
+							new MonolithicHeap(),
+							new ValueEnvironment<>((NonRelationalValueDomain) domain),
+							new TypeEnvironment<>(new InferredTypes())),
+					"inputs/ext-sign-eval.imp"),
+			new Task("available-expressions", "AvailableExpressions",
+					element -> new SimpleAbstractState<>(
+							new MonolithicHeap(),
+							new DefiniteForwardDataflowDomain<>((DataflowElement) element),
+							new TypeEnvironment<>(new InferredTypes())),
+					"inputs/ae-eval.imp"));
+
+	// the results of the reference solutions, for each task
+	private final Map<String, Map<String, String>> expected = new HashMap<>();
+	private final long timeoutMillis;
+
+	public SubmissionEvaluator() throws ParsingException, AnalysisException {
+		this(DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Builds an evaluator that gives each task of a submission the given time
+	 * to complete.
+	 */
+	public SubmissionEvaluator(long timeout, TimeUnit unit) throws ParsingException, AnalysisException {
+		if (timeout <= 0)
+			throw new IllegalArgumentException("The timeout must be positive: " + timeout);
+		this.timeoutMillis = unit.toMillis(timeout);
+		Object[] references = { new ExtSignDomainSolution(), new AvailableExpressionsSolution() };
+		for (int i = 0; i < TASKS.size(); i++) {
+			Task task = TASKS.get(i);
+			expected.put(task.name, run(IMPFrontend.processFile(task.input), task.state.apply(references[i])));
+		}
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Map<String, String> run(Program program, SimpleAbstractState<?, ?, ?> state)
+			throws AnalysisException {
+		StateCollector collector = new StateCollector();
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setAbstractState(state);
+		conf.addSemanticCheck(collector);
+		new LiSA(conf).run(program);
+		return collector.getStates();
+	}
+
+	/**
+	 * A class loader resolving the classes of this project from the
+	 * submission, and any other class from its parent.
+	 */
+	private static final class SubmissionClassLoader extends URLClassLoader {
+
+		SubmissionClassLoader(URL classes, ClassLoader parent) {
+			super(new URL[] { classes }, parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(PACKAGE))
+				return super.loadClass(name, resolve);
+
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> c = findLoadedClass(name);
+				if (c == null)
+					c = findClass(name);
+				if (resolve)
+					resolveClass(c);
+				return c;
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the submission in the given directory, yielding a
+	 * tab-separated line with its name and the outcome of each task.
+	 */
+	public String evaluate(Path submission) {
+		StringBuilder line = new StringBuilder(submission.getFileName().toString());
+		Path classes;
+		try {
+			classes = compile(submission);
+		} catch (IOException e) {
+			return line.append("\tcompilation failed: ").append(oneLine(e.getMessage())).toString();
+		}
+
+		// workers are always dead when their task is over, so the classes can
+		// be deleted
+		try {
+			for (Task task : TASKS)
+				line.append('\t').append(task.name).append(": ").append(evaluateInWorker(task, classes));
+		} finally {
+			delete(classes);
+		}
+		return line.toString();
+	}
+
+	private String evaluateInWorker(Task task, Path classes) {
+		Path results;
+		try {
+			results = Files.createTempFile("scsr-" + task.name + "-", ".results");
+			Files.delete(results);
+		} catch (IOException e) {
+			return "unable to create the results file (" + oneLine(e.getMessage()) + ")";
+		}
+
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				SubmissionEvaluator.class.getName(), WORKER, task.name, classes.toString(), results.toString())
+				.redirectOutput(Redirect.DISCARD)
+				.redirectError(Redirect.DISCARD);
+		Process worker;
+		try {
+			worker = builder.start();
+		} catch (IOException e) {
+			return "unable to start a worker (" + oneLine(e.getMessage()) + ")";
+		}
+
+		try {
+			if (!worker.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				worker.destroyForcibly().waitFor();
+				return "timed out after " + timeoutMillis + " ms";
+			}
+			// results are moved in place once complete, so a worker that
+			// exited before has none
+			if (!Files.exists(results))
+				return "exited with status " + worker.exitValue();
+
+			List<String> lines = Files.readAllLines(results, StandardCharsets.UTF_8);
+			if (lines.isEmpty() || !lines.get(0).equals(STATES))
+				return lines.isEmpty() ? "no results" : lines.get(0);
+			Map<String, String> actual = new HashMap<>();
+			for (String state : lines.subList(1, lines.size())) {
+				int tab = state.indexOf('\t');
+				actual.put(unescape(state.substring(0, tab)), unescape(state.substring(tab + 1)));
+			}
+			return compare(expected.get(task.name), actual);
+		} catch (InterruptedException e) {
+			worker.destroyForcibly();
+			Thread.currentThread().interrupt();
+			return "interrupted";
+		} catch (IOException e) {
+			return "unable to read the results (" + oneLine(e.getMessage()) + ")";
+		} finally {
+			try {
+				Files.deleteIfExists(results);
+			} catch (IOException e) {
+				// a temporary file, nothing else to do
+			}
+		}
+	}
+
+	private static String compare(Map<String, String> expected, Map<String, String> actual) {
+		long wrong = expected.entrySet().stream()
+				.filter(e -> !Objects.equals(e.getValue(), actual.get(e.getKey())))
+				.count();
+		return wrong == 0 && actual.size() == expected.size() ? "ok"
+				: "failed (" + wrong + " of " + expected.size() + " states differ)";
+	}
+
+	/**
+	 * Runs the given task with the classes of a submission, writing the
+	 * results to the given file: this is what a worker does.
+	 */
+	private static void work(String taskName, Path classes, Path results) throws IOException {
+		Task task = null;
+		for (Task t : TASKS)
+			if (t.name.equals(taskName))
+				task = t;
+		if (task == null)
+			throw new IllegalArgumentException("Unknown task: " + taskName);
+
+		List<String> lines = new ArrayList<>();
+		try (SubmissionClassLoader loader = new SubmissionClassLoader(classes.toUri().toURL(),
+				SubmissionEvaluator.class.getClassLoader())) {
+			Object instance = null;
+			try {
+				instance = loader.loadClass(PACKAGE + task.className).getConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				lines.add(oneLine("unable to instantiate " + task.className + " (" + e + ")"));
+			}
+
+			if (instance != null)
+				try {
+					Map<String, String> states = run(IMPFrontend.processFile(task.input), task.state.apply(instance));
+					lines.add(STATES);
+					for (Map.Entry<String, String> state : states.entrySet())
+						lines.add(escape(state.getKey()) + "\t" + escape(state.getValue()));
+				} catch (AnalysisException | ParsingException | RuntimeException | LinkageError e) {
+					lines.clear();
+					lines.add(oneLine("analysis failed (" + e + ")"));
+				}
+		}
+
+		Path partial = results.resolveSibling(results.getFileName() + ".partial");
+		Files.write(partial, lines, StandardCharsets.UTF_8);
+		Files.move(partial, results, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// outcomes are fields of a tab-separated line
+	private static String oneLine(String message) {
+		return String.valueOf(message).replace('\n', ' ').replace('\r', ' ').replace('\t', ' ');
+	}
+
+	// states span several lines, and keys and states are separated by a tab
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+	}
+
+	private static String unescape(String text) {
+		StringBuilder result = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length()) {
+				c = text.charAt(++i);
+				result.append(c == 'n' ? '\n' : c == 'r' ? '\r' : c == 't' ? '\t' : c);
+			} else
+				result.append(c);
+		}
+		return result.toString();
+	}
+
+	private static Path compile(Path submission) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new IOException("No Java compiler available: run with a JDK");
+
+		Path root = submission.resolve(Paths.get("src", "main", "java"));
+		if (!Files.isDirectory(root))
+			throw new IOException("No sources in " + root);
+		List<File> sources;
+		try (Stream<Path> files = Files.walk(root)) {
+			sources = files.filter(p -> p.toString().endsWith(".java")).map(Path::toFile).collect(Collectors.toList());
+		}
+
+		Path classes = Files.createTempDirectory("scsr-submission");
+		StringWriter errors = new StringWriter();
+		try (StandardJavaFileManager manager = compiler.getStandardFileManager(null, null, null)) {
+			List<String> options = Arrays.asList("-d", classes.toString(),
+					"-classpath", System.getProperty("java.class.path"), "-nowarn");
+			boolean ok = compiler.getTask(errors, manager, null, options, null,
+					manager.getJavaFileObjectsFromFiles(sources)).call();
+			if (!ok) {
+				delete(classes);
+				throw new IOException(errors.toString());
+			}
+		}
+		return classes;
+	}
+
+	private static void delete(Path dir) {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+		} catch (IOException e) {
+			// temporary files, nothing else to do
+		}
+	}
+
+	public static void main(String[] args) throws ParsingException, AnalysisException, IOException {
+		if (args.length == 4 && args[0].equals(WORKER)) {
+			work(args[1], Paths.get(args[2]), Paths.get(args[3]));
+			// threads started by the submission must not keep the worker alive
+			System.exit(0);
+		}
+		if (args.length == 0) {
+			System.err.println("Usage: SubmissionEvaluator <submission directory>...");
+			System.exit(1);
+		}
+
+		SubmissionEvaluator evaluator = new SubmissionEvaluator();
+		for (String arg : args)
+			System.out.println(evaluator.evaluate(Paths.get(arg)));
+	}
+}
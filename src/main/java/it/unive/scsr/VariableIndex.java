@@ -0,0 +1,47 @@
+package it.unive.scsr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.unive.lisa.symbolic.value.Identifier;
+
+/**
+ * The variables of a single CFG, each given a dense index the first time it
+ * is seen, so that environments can store their values in positional
+ * structures instead of maps.
+ */
+class VariableIndex {
+
+	private final Map<Identifier, Integer> indexes = new HashMap<>();
+	private final List<Identifier> variables = new ArrayList<>();
+
+	int indexOf(Identifier id) {
+		Integer index = indexes.get(id);
+		if (index != null)
+			return index;
+
+		int fresh = variables.size();
+		variables.add(id);
+		indexes.put(id, fresh);
+		return fresh;
+	}
+
+	/**
+	 * Yields the index of the given identifier, or {@code -1} if it has never
+	 * been seen.
+	 */
+	int find(Identifier id) {
+		Integer index = indexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	Identifier get(int index) {
+		return variables.get(index);
+	}
+
+	int size() {
+		return variables.size();
+	}
+}
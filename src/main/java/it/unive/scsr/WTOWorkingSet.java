@@ -0,0 +1,121 @@
+package it.unive.scsr;
+
+import java.util.BitSet;
+
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.util.workset.WorkingSet;
+
+/**
+ * A working set for LiSA's fixpoint that always yields the pending statement
+ * that comes first in the {@link WeakTopologicalOrder} of its CFG. When the
+ * body of a loop changes the state of its head, the head is thus processed
+ * again before any statement after the loop, and inner loops stabilize before
+ * outer ones, which is Bourdoncle's recursive iteration strategy. Use it with
+ * {@code conf.setFixpointWorkingSet(WTOWorkingSet.class)}. The order is
+ * computed the first time a statement is pushed, from the CFG it belongs to.
+ * LiSA decides by itself when to widen, on any statement: wrapping the value
+ * domain in a {@link HeadWideningValueDomain} restricts widening to the heads
+ * of the loops, with lub everywhere else.
+ */
+public class WTOWorkingSet implements WorkingSet<Statement> {
+
+	// whether the statement last popped in this thread is the head of a loop
+	private static final ThreadLocal<Boolean> VISITING_HEAD = new ThreadLocal<>();
+
+	private WeakTopologicalOrder<Statement> order;
+
+	// the positions in order of the pending statements
+	private final BitSet pending = new BitSet();
+	private int size;
+
+	private WTOWorkingSet() {
+	}
+
+	/**
+	 * Builds a new, empty working set. This is what LiSA invokes to create the
+	 * working set of each fixpoint.
+	 */
+	public static WTOWorkingSet mk() {
+		return new WTOWorkingSet();
+	}
+
+	private int positionOf(Statement st) {
+		if (order == null) {
+			CFG cfg = st.getCFG();
+			order = new WeakTopologicalOrder<>(cfg.getEntrypoints(), cfg::followersOf);
+		}
+		return order.positionOf(st);
+	}
+
+	/**
+	 * Yields whether the given statement is the head of a loop of its CFG.
+	 */
+	public boolean isHead(Statement st) {
+		positionOf(st);
+		return order.isHead(st);
+	}
+
+	/**
+	 * Yields whether the statement whose semantics the fixpoint of this thread
+	 * is computing is the head of a loop. This is always true when the
+	 * fixpoint does not use this working set.
+	 */
+	static boolean visitingHead() {
+		Boolean head = VISITING_HEAD.get();
+		return head == null || head;
+	}
+
+	@Override
+	public void push(Statement st) {
+		int position = positionOf(st);
+		if (!pending.get(position)) {
+			pending.set(position);
+			size++;
+		}
+	}
+
+	@Override
+	public Statement pop() {
+		int position = pending.nextSetBit(0);
+		if (position < 0)
+			throw new IllegalStateException("The working set is empty");
+		pending.clear(position);
+		size--;
+		Statement st = order.get(position);
+		VISITING_HEAD.set(order.isHead(st));
+		return st;
+	}
+
+	@Override
+	public Statement peek() {
+		int position = pending.nextSetBit(0);
+		if (position < 0)
+			throw new IllegalStateException("The working set is empty");
+		return order.get(position);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		// the fixpoint is over when it finds the working set empty
+		if (size == 0)
+			VISITING_HEAD.remove();
+		return size == 0;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+			if (builder.length() > 1)
+				builder.append(", ");
+			builder.append(order.get(i));
+		}
+		return builder.append("]").toString();
+	}
+}
@@ -0,0 +1,175 @@
+package it.unive.scsr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A weak topological order of a graph, computed with Bourdoncle's algorithm
+ * ("Efficient chaotic iteration strategies with widenings", 1993). The order
+ * is flattened: every node gets a position, the head of each component comes
+ * right before the nodes of its body, and a component comes before the nodes
+ * that follow it. Iterating over positions thus stabilizes inner loops before
+ * leaving them. The algorithm is run with an explicit stack of frames, since
+ * the depth of the recursive formulation is the length of the longest path.
+ */
+class WeakTopologicalOrder<N> {
+
+	private static final int DONE = Integer.MAX_VALUE;
+
+	private final Map<N, Integer> positions = new HashMap<>();
+	private final List<N> order = new ArrayList<>();
+	private final Set<N> heads = new HashSet<>();
+
+	// working state of the visit, released once the order is computed
+	private Function<N, Collection<N>> successors;
+	private Map<N, Integer> dfn;
+	private Deque<N> stack;
+	private int num;
+
+	WeakTopologicalOrder(Collection<N> roots, Function<N, Collection<N>> successors) {
+		this.successors = successors;
+		this.dfn = new HashMap<>();
+		this.stack = new ArrayDeque<>();
+
+		Deque<List<N>> partition = new ArrayDeque<>();
+		for (N root : roots)
+			if (dfn(root) == 0)
+				visit(root, partition);
+
+		for (List<N> element : partition)
+			for (N node : element)
+				positionOf(node);
+
+		this.successors = null;
+		this.dfn = null;
+		this.stack = null;
+	}
+
+	/**
+	 * Yields the position of the given node, appending it to the order if it
+	 * was not reachable from the roots.
+	 */
+	int positionOf(N node) {
+		Integer position = positions.get(node);
+		if (position != null)
+			return position;
+
+		int fresh = order.size();
+		order.add(node);
+		positions.put(node, fresh);
+		return fresh;
+	}
+
+	N get(int position) {
+		return order.get(position);
+	}
+
+	int size() {
+		return order.size();
+	}
+
+	/**
+	 * Yields whether the given node is the head of a component, that is, the
+	 * node where iteration over a loop starts and widening should happen.
+	 */
+	boolean isHead(N node) {
+		return heads.contains(node);
+	}
+
+	private int dfn(N node) {
+		return dfn.getOrDefault(node, 0);
+	}
+
+	private class Frame {
+		final N node;
+		final Iterator<N> successors;
+		// where the result of this frame is prepended
+		final Deque<List<N>> target;
+		// the sub-partition of a component, null for plain visits
+		final Deque<List<N>> component;
+		int head;
+		boolean loop;
+
+		Frame(N node, Deque<List<N>> target, Deque<List<N>> component, int head) {
+			this.node = node;
+			this.successors = WeakTopologicalOrder.this.successors.apply(node).iterator();
+			this.target = target;
+			this.component = component;
+			this.head = head;
+		}
+	}
+
+	private Frame startVisit(N node, Deque<List<N>> target) {
+		stack.push(node);
+		dfn.put(node, ++num);
+		return new Frame(node, target, null, num);
+	}
+
+	private void visit(N root, Deque<List<N>> partition) {
+		Deque<Frame> frames = new ArrayDeque<>();
+		frames.push(startVisit(root, partition));
+		while (!frames.isEmpty()) {
+			Frame frame = frames.peek();
+			if (frame.successors.hasNext()) {
+				N succ = frame.successors.next();
+				int min = dfn(succ);
+				if (min == 0)
+					frames.push(startVisit(succ, frame.component == null ? frame.target : frame.component));
+				else if (frame.component == null)
+					reached(frame, min);
+				continue;
+			}
+
+			frames.pop();
+			int result;
+			if (frame.component != null) {
+				// a component is complete: its head comes first
+				List<N> flat = new ArrayList<>();
+				flat.add(frame.node);
+				for (List<N> element : frame.component)
+					flat.addAll(element);
+				frame.target.addFirst(flat);
+				result = frame.head;
+			} else if (frame.head == dfn(frame.node)) {
+				dfn.put(frame.node, DONE);
+				N element = stack.pop();
+				if (frame.loop) {
+					while (!element.equals(frame.node)) {
+						dfn.put(element, 0);
+						element = stack.pop();
+					}
+					// the nodes of the loop are visited again to build the
+					// component, whose result is the head of this visit
+					heads.add(frame.node);
+					frames.push(new Frame(frame.node, frame.target, new ArrayDeque<>(), frame.head));
+					continue;
+				}
+				List<N> single = new ArrayList<>(1);
+				single.add(frame.node);
+				frame.target.addFirst(single);
+				result = frame.head;
+			} else
+				result = frame.head;
+
+			Frame parent = frames.peek();
+			if (parent != null && parent.component == null)
+				reached(parent, result);
+		}
+	}
+
+	private static <N> void reached(WeakTopologicalOrder<N>.Frame frame, int min) {
+		if (min <= frame.head) {
+			frame.head = min;
+			frame.loop = true;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class AnalysisCacheTest {
+
+	@Test
+	public void testCachedExtSign() throws ParsingException, AnalysisException, IOException {
+		Path cacheDir = Paths.get("outputs", "cache", "ext-sign");
+		if (Files.exists(cacheDir))
+			Files.walk(cacheDir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+
+		AnalysisCache cache = new AnalysisCache(cacheDir, ExtSignDomainSolution.class, "1");
+
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+		cache.run(program, () -> new SimpleAbstractState<>(
+				new MonolithicHeap(),
+				new ValueEnvironment<>(new ExtSignDomainSolution()),
+				new TypeEnvironment<>(new InferredTypes())), "outputs/ext-sign-cold");
+		assertEquals(0, cache.getHits());
+		assertEquals(5, cache.getMisses());
+		Reports.assertSameResults(Paths.get("expected", "ext-sign"), Paths.get("outputs", "ext-sign-cold"));
+
+		program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+		cache.run(program, () -> new SimpleAbstractState<>(
+				new MonolithicHeap(),
+				new ValueEnvironment<>(new ExtSignDomainSolution()),
+				new TypeEnvironment<>(new InferredTypes())), "outputs/ext-sign-warm");
+		assertEquals(5, cache.getHits());
+		assertEquals(0, cache.getMisses());
+		Reports.assertSameResults(Paths.get("expected", "ext-sign"), Paths.get("outputs", "ext-sign-warm"));
+	}
+
+	@Test
+	public void testShiftedLocations() throws ParsingException, AnalysisException, IOException {
+		Path cacheDir = Paths.get("outputs", "cache", "rd");
+		if (Files.exists(cacheDir))
+			Files.walk(cacheDir).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+
+		AnalysisCache cache = new AnalysisCache(cacheDir, ReachingDefinitions.class, "1");
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		int cfgs = program.getAllCFGs().size();
+		cache.run(program, () -> new SimpleAbstractState<>(
+				new MonolithicHeap(),
+				new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+				new TypeEnvironment<>(new InferredTypes())), "outputs/rd-cache-cold");
+		assertEquals(cfgs, cache.getMisses());
+
+		// a new method at the top moves all the others, whose results, that
+		// mention locations, are still taken from the cache
+		String source = new String(Files.readAllBytes(Paths.get("inputs", "reaching-definitions.imp")),
+				StandardCharsets.UTF_8);
+		Path shifted = Paths.get("outputs", "cache", "shifted.imp");
+		Files.write(shifted, source.replaceFirst("\\{", "{\n\ttest0() {\n\t\tdef y = 1;\n\t}\n")
+				.getBytes(StandardCharsets.UTF_8));
+
+		program = IMPFrontend.processFile(shifted.toString());
+		cache.run(program, () -> new SimpleAbstractState<>(
+				new MonolithicHeap(),
+				new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+				new TypeEnvironment<>(new InferredTypes())), "outputs/rd-cache-shifted");
+		assertEquals(cfgs, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/rd-shifted");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+						new TypeEnvironment<>(new InferredTypes())));
+		new LiSA(conf).run(IMPFrontend.processFile(shifted.toString()));
+		Reports.assertSameResults(Paths.get("outputs", "rd-shifted"), Paths.get("outputs", "rd-cache-shifted"));
+	}
+}
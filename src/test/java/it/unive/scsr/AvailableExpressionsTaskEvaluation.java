@@ -3,12 +3,11 @@ package it.unive.scsr;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -22,8 +21,6 @@ import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
 import it.unive.lisa.analysis.types.InferredTypes;
 import it.unive.lisa.imp.IMPFrontend;
 import it.unive.lisa.imp.ParsingException;
-import it.unive.lisa.outputs.JsonReport;
-import it.unive.lisa.outputs.compare.JsonReportComparer;
 import it.unive.lisa.program.Program;
 
 public class AvailableExpressionsTaskEvaluation {
@@ -48,14 +45,11 @@ public class AvailableExpressionsTaskEvaluation {
 		Path expectedPath = Paths.get("expected", "available-expressions");
 		Path actualPath = Paths.get("outputs", "ae");
 
-		File expFile = Paths.get(expectedPath.toString(), "report.json").toFile();
-		File actFile = Paths.get(actualPath.toString(), "report.json").toFile();
 		try {
-			JsonReport expected = JsonReport.read(new FileReader(expFile));
-			JsonReport actual = JsonReport.read(new FileReader(actFile));
-			assertTrue("Results are different",
-					JsonReportComparer.compare(expected, actual, expectedPath.toFile(), actualPath.toFile()));
-		} catch (FileNotFoundException e) {
+			List<DotReportComparer.Difference> differences = new DotReportComparer(
+					Runtime.getRuntime().availableProcessors(), false).compare(expectedPath, actualPath);
+			assertTrue("Results are different:\n" + differences, differences.isEmpty());
+		} catch (NoSuchFileException e) {
 			e.printStackTrace(System.err);
 			fail("Unable to find report file");
 		} catch (IOException e) {
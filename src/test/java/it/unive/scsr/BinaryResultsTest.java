@@ -0,0 +1,79 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class BinaryResultsTest {
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static Path analyze(String name) throws ParsingException, AnalysisException {
+		Path binary = Paths.get("outputs", "binary", name + ".bin");
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setWorkdir("outputs/binary/" + name + "-workdir");
+		conf.addSemanticCheck(new BinaryResultsWriter(binary));
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new ExtSignDomainSolution()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+		new LiSA(conf).run(program);
+		return binary;
+	}
+
+	@Test
+	public void testWrittenDuringAnalysis() throws IOException, ParsingException, AnalysisException {
+		Path expectedPath = Paths.get("expected", "ext-sign");
+		Path actualPath = Paths.get("outputs", "binary", "ext-sign");
+
+		Path binary = analyze("ext-sign");
+		// nothing is dumped but the binary file
+		assertFalse(Files.exists(Paths.get("outputs", "binary", "ext-sign-workdir", "report.json")));
+		try (BinaryResults results = BinaryResults.open(binary)) {
+			assertEquals(5, results.graphCount());
+			results.toDot(actualPath);
+		}
+
+		Reports.assertSameResults(expectedPath, actualPath);
+	}
+
+	@Test
+	public void testQueryState() throws IOException, ParsingException, AnalysisException {
+		Path binary = analyze("ext-sign-query");
+		try (BinaryResults results = BinaryResults.open(binary)) {
+			String f0 = "analysis___untyped_extsign.f0(extsign__this).dot";
+			int graph = results.findGraph(f0);
+			assertTrue(graph >= 0);
+			boolean found = false;
+			for (int n = 0; n < results.nodeCount(graph); n++)
+				if (results.statement(graph, n).equals("return i")) {
+					String id = results.nodeId(graph, n);
+					assertTrue(results.stateOf(f0, id).contains("i: 0+"));
+					found = true;
+				}
+			assertTrue(found);
+			assertEquals(null, results.stateOf(f0, "node42"));
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package it.unive.scsr;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class BitVectorAvailableExpressionsTest {
+
+	@Test
+	public void testBitVectorAvailableExpressions() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/ae-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ae-bitvector");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new BitVectorAvailableExpressions(),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		Path expectedPath = Paths.get("expected", "available-expressions");
+		Path actualPath = Paths.get("outputs", "ae-bitvector");
+
+		Reports.assertSameResults(expectedPath, actualPath);
+	}
+}
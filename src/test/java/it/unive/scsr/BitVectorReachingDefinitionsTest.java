@@ -0,0 +1,115 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.ScopeToken;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.caches.Caches;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.Type;
+import it.unive.lisa.type.common.Int32;
+import it.unive.lisa.util.collections.externalSet.ExternalSet;
+
+public class BitVectorReachingDefinitionsTest {
+
+	@Test
+	public void testSameResultsAsReachingDefinitions() throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/rd-sets");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		new LiSA(conf).run(program);
+
+		conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/rd-bitvector");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new BitVectorReachingDefinitions(),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		new LiSA(conf).run(program);
+
+		Path expectedPath = Paths.get("outputs", "rd-sets");
+		Path actualPath = Paths.get("outputs", "rd-bitvector");
+
+		Reports.assertSameResults(expectedPath, actualPath);
+	}
+
+	@Test
+	public void testSeveralDefinitionsPerIdentifier() throws ParsingException, SemanticException {
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		// the definition sites must belong to the same CFG
+		List<Statement> nodes = new ArrayList<>();
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getNodes().size() > nodes.size())
+				nodes = new ArrayList<>(cfg.getNodes());
+		ExternalSet<Type> ints = Caches.types().mkSingletonSet(Int32.INSTANCE);
+		Variable x = new Variable(ints, "x", SyntheticLocation.INSTANCE);
+		Variable y = new Variable(ints, "y", SyntheticLocation.INSTANCE);
+		Constant c = new Constant(Int32.INSTANCE, 1, SyntheticLocation.INSTANCE);
+		ScopeToken token = new ScopeToken(nodes.get(0));
+
+		// a state not bound to a CFG yet can be scoped and forgotten
+		BitVectorReachingDefinitions unbound = new BitVectorReachingDefinitions().smallStepSemantics(c,
+				nodes.get(0));
+		assertSame(unbound, unbound.pushScope(token));
+		assertSame(unbound, unbound.popScope(token));
+		assertSame(unbound, unbound.forgetIdentifier(x));
+
+		// two definitions of x reach the join, and are both killed by a third
+		BitVectorReachingDefinitions bits = unbound.assign(x, c, nodes.get(0)).assign(y, c, nodes.get(1))
+				.lub(unbound.assign(x, c, nodes.get(2)));
+		PossibleForwardDataflowDomain<ReachingDefinitions> sets = new PossibleForwardDataflowDomain<>(
+				new ReachingDefinitions());
+		sets = sets.assign(x, c, nodes.get(0)).assign(y, c, nodes.get(1))
+				.lub(sets.assign(x, c, nodes.get(2)));
+		assertSameDefinitions(sets, bits);
+		assertEquals(2, sets.getDataflowElements().iterator().next()
+				.kill(x, c, nodes.get(3), sets).size());
+
+		assertSameDefinitions(sets.assign(x, c, nodes.get(3)), bits.assign(x, c, nodes.get(3)));
+		assertSameDefinitions(sets.forgetIdentifier(x), bits.forgetIdentifier(x));
+		assertSameDefinitions(sets.pushScope(token), bits.pushScope(token));
+		assertSameDefinitions(sets.pushScope(token).popScope(token), bits.pushScope(token).popScope(token));
+		assertSameDefinitions(sets, bits.pushScope(token).popScope(token));
+	}
+
+	private static void assertSameDefinitions(PossibleForwardDataflowDomain<ReachingDefinitions> expected,
+			BitVectorReachingDefinitions actual) {
+		assertEquals(expected.representation().toString(), actual.representation().toString());
+	}
+}
@@ -0,0 +1,60 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.PossibleForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+public class DefUseIndexTest {
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testLoop() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+
+		DefUseIndex.Builder builder = new DefUseIndex.Builder();
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.addSemanticCheck(builder);
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PossibleForwardDataflowDomain<>(new ReachingDefinitions()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+		DefUseIndex index = builder.build();
+
+		// in test3, the condition of the loop reads i as defined before the
+		// loop and by the increment
+		Statement condition = null;
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals("test3"))
+				for (Statement st : cfg.getNodes())
+					if (st.toString().startsWith("<("))
+						condition = st;
+		assertNotNull(condition);
+
+		List<Statement> defs = index.definitionsReaching(condition);
+		assertEquals(2, defs.size());
+		for (Statement def : defs)
+			assertTrue(index.usesOf(def).contains(condition));
+	}
+}
@@ -0,0 +1,107 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+public class DotReportComparerTest {
+
+	private static Path copy(String name, UnaryOperator<String> edit) throws IOException {
+		Path source = Paths.get("expected", "ext-sign");
+		Path target = Paths.get("outputs", "comparer", name);
+		Files.createDirectories(target);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(source)) {
+			for (Path file : files) {
+				String content = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+				if (file.toString().endsWith(".dot"))
+					content = edit.apply(content);
+				Files.write(target.resolve(file.getFileName()), content.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		return target;
+	}
+
+	@Test
+	public void testNodeNumberingIsIgnored() throws IOException {
+		Path renumbered = copy("renumbered", dot -> dot
+				.replace("\"node0\"", "\"nodeX\"")
+				.replace("\"node1\"", "\"node0\"")
+				.replace("\"nodeX\"", "\"node1\""));
+
+		List<DotReportComparer.Difference> differences = new DotReportComparer(4, false)
+				.compare(Paths.get("expected", "ext-sign"), renumbered);
+		assertTrue("Results are different:\n" + differences, differences.isEmpty());
+	}
+
+	@Test
+	public void testStructuredDifference() throws IOException {
+		// f0 is the only method returning i
+		Path changed = copy("changed", dot -> dot.replace("value [[ i: 0+<BR/>ret_value@f0",
+				"value [[ i: +<BR/>ret_value@f0"));
+
+		List<DotReportComparer.Difference> differences = new DotReportComparer(4, true)
+				.compare(Paths.get("expected", "ext-sign"), changed);
+		assertEquals(1, differences.size());
+		DotReportComparer.Difference difference = differences.get(0);
+		assertTrue(difference.getFile().contains("f0"));
+		assertTrue(difference.getElement().startsWith("return i"));
+		assertTrue(difference.getExpected().contains("i: 0+"));
+		assertTrue(difference.getActual().contains("i: +"));
+	}
+
+	private static Path report(String name, String thenState, String elseState) throws IOException {
+		Path target = Paths.get("outputs", "comparer", name);
+		Files.createDirectories(target);
+		Files.write(target.resolve("report.json"),
+				"{\n  \"warnings\" : [ ],\n  \"files\" : [ \"g.dot\" ]\n}".getBytes(StandardCharsets.UTF_8));
+		String dot = "digraph {\n"
+				+ "\t\"node0\" [shape=\"rect\",color=\"black\",label=<b<BR/>{{<BR/>b}}>];\n"
+				+ "\t\"node1\" [shape=\"rect\",color=\"gray\",label=<x = 1<BR/>{{<BR/>" + thenState + "}}>];\n"
+				+ "\t\"node2\" [shape=\"rect\",color=\"gray\",label=<x = 1<BR/>{{<BR/>" + elseState + "}}>];\n"
+				+ "\t\"node0\" -> \"node1\" [color=\"blue\",style=\"dashed\"];\n"
+				+ "\t\"node0\" -> \"node2\" [color=\"red\",style=\"dashed\"];\n"
+				+ "}\n";
+		Files.write(target.resolve("g.dot"), dot.getBytes(StandardCharsets.UTF_8));
+		return target;
+	}
+
+	@Test
+	public void testNodesWithTheSameStatement() throws IOException {
+		// the two branches assign the same variable, with different states
+		Path expected = report("same-statement", "then", "else");
+		Path swapped = report("swapped-states", "else", "then");
+
+		List<DotReportComparer.Difference> differences = new DotReportComparer(1, false).compare(expected,
+				expected);
+		assertTrue("Results are different:\n" + differences, differences.isEmpty());
+		differences = new DotReportComparer(1, false).compare(expected, swapped);
+		assertEquals(2, differences.size());
+		assertTrue(differences.get(0).getExpected().contains("then"));
+		assertTrue(differences.get(0).getActual().contains("else"));
+	}
+
+	@Test
+	public void testWarningsAreCompared() throws IOException {
+		Path warned = copy("warned", dot -> dot);
+		Path report = warned.resolve("report.json");
+		String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8);
+		Files.write(report, json.replace("\"warnings\" : [ ]", "\"warnings\" : [ { \"message\" : \"[x] unused\" } ]")
+				.getBytes(StandardCharsets.UTF_8));
+
+		List<DotReportComparer.Difference> differences = new DotReportComparer(4, false)
+				.compare(Paths.get("expected", "ext-sign"), warned);
+		assertEquals(1, differences.size());
+		assertEquals("warnings", differences.get(0).getElement());
+		assertTrue(differences.get(0).getActual().contains("[x] unused"));
+	}
+}
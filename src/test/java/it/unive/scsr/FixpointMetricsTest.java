@@ -0,0 +1,107 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.statement.Statement;
+
+public class FixpointMetricsTest {
+
+	@Test
+	public void testInstrumentedAvailableExpressions() throws ParsingException, AnalysisException, IOException {
+		Program program = IMPFrontend.processFile("inputs/ae-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ae-metrics");
+		conf.setFixpointWorkingSet(InstrumentedWorkingSet.class);
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new InstrumentedValueDomain<>(
+								new DefiniteForwardDataflowDomain<>(new AvailableExpressionsSolution())),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		FixpointMetrics metrics = FixpointMetrics.install();
+		try {
+			LiSA lisa = new LiSA(conf);
+			lisa.run(program);
+		} finally {
+			metrics.uninstall();
+		}
+
+		Path metricsFile = Paths.get("outputs", "ae-metrics", "metrics.json");
+		metrics.write(metricsFile);
+		String json = new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8);
+		for (int i = 0; i <= 4; i++)
+			assertTrue("Missing metrics for f" + i, json.contains("f" + i));
+
+		Map<String, FixpointMetrics.CfgMetrics> cfgs = new HashMap<>();
+		for (FixpointMetrics.CfgMetrics cfg : metrics.cfgs()) {
+			cfgs.put(cfg.cfg().getDescriptor().getName(), cfg);
+			for (Statement node : cfg.cfg().getNodes()) {
+				FixpointMetrics.NodeMetrics m = cfg.node(node);
+				assertNotNull("Node " + node + " never visited", m);
+				assertTrue("Node " + node + " never visited", m.visits() > 0);
+			}
+		}
+
+		// f3 loops, while f0 and f1 are straight-line code: only the former
+		// joins states and checks whether they are stable
+		FixpointMetrics.CfgMetrics f3 = cfgs.get("f3");
+		for (String straight : new String[] { "f0", "f1" }) {
+			FixpointMetrics.CfgMetrics cfg = cfgs.get(straight);
+			assertTrue(straight + " joins as much as f3", f3.lubs() > cfg.lubs());
+			assertTrue(straight + " compares as much as f3", f3.lessOrEquals() > cfg.lessOrEquals());
+		}
+
+		// f0 never assigns a variable used in an available expression, while
+		// in f1 b = x + y kills b + c and x = a + b kills x + y
+		assertEquals(0, killed(cfgs.get("f0")));
+		assertTrue("f1 kills nothing", killed(cfgs.get("f1")) >= 2);
+		assertTrue("f0 generates nothing", generated(cfgs.get("f0")) > 0);
+
+		// instrumentation must not change the results
+		Path expectedPath = Paths.get("expected", "available-expressions");
+		Path actualPath = Paths.get("outputs", "ae-metrics");
+
+		Reports.assertSameResults(expectedPath, actualPath);
+	}
+
+	private static long killed(FixpointMetrics.CfgMetrics cfg) {
+		long killed = 0;
+		for (Statement node : cfg.cfg().getNodes())
+			killed += cfg.node(node).killSize();
+		return killed;
+	}
+
+	private static long generated(FixpointMetrics.CfgMetrics cfg) {
+		long generated = 0;
+		for (Statement node : cfg.cfg().getNodes())
+			generated += cfg.node(node).genSize();
+		return generated;
+	}
+}
@@ -0,0 +1,76 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class ImpProgramGeneratorTest {
+
+	private static ImpProgramGenerator generator(long seed) {
+		return new ImpProgramGenerator()
+				.setSeed(seed)
+				.setMethods(3)
+				.setStraightLine(4)
+				.setLoopDepth(2)
+				.setBranching(2)
+				.setVariables(5)
+				.setExpressionDepth(3);
+	}
+
+	@Test
+	public void testCompleteExpressionTrees() {
+		// with depth 3, each side of the root operator is a parenthesized
+		// binary expression over two operands
+		String operand = "(v\\d+|\\d+)";
+		String side = "\\(" + operand + " [-+*/] " + operand + "\\)";
+		String expression = "\\t+v\\d+ = " + side + " [-+*/] " + side + ";";
+		for (String line : generator(42).generate("gen").split("\n"))
+			if (line.contains(" = ") && !line.contains("def "))
+				assertTrue(line, line.matches(expression));
+	}
+
+	@Test
+	public void testDeterministic() {
+		assertEquals(generator(42).generate("gen"), generator(42).generate("gen"));
+		assertNotEquals(generator(42).generate("gen"), generator(43).generate("gen"));
+	}
+
+	@Test
+	public void testAnalyzable() throws IOException, ParsingException, AnalysisException {
+		Path file = Paths.get("outputs", "generated", "generated.imp");
+		Files.createDirectories(file.getParent());
+		Files.write(file, generator(42).generate("gen").getBytes(StandardCharsets.UTF_8));
+		Program program = IMPFrontend.processFile(file.toString());
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setWorkdir("outputs/generated");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new ExtSignDomainSolution()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+	}
+}
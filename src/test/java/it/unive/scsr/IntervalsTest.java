@@ -0,0 +1,103 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingAdd;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingDiv;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingMul;
+import it.unive.lisa.symbolic.value.operator.binary.NumericNonOverflowingSub;
+import it.unive.lisa.type.common.Int32;
+
+public class IntervalsTest {
+
+	private static Intervals interval(Intervals domain, int lo, int hi) throws SemanticException {
+		Intervals l = domain.evalNonNullConstant(new Constant(Int32.INSTANCE, lo, SyntheticLocation.INSTANCE), null);
+		Intervals h = domain.evalNonNullConstant(new Constant(Int32.INSTANCE, hi, SyntheticLocation.INSTANCE), null);
+		return l.lub(h);
+	}
+
+	@Test
+	public void testArithmetic() throws SemanticException {
+		Intervals domain = new Intervals();
+		Intervals a = interval(domain, -2, 3);
+		Intervals b = interval(domain, 1, 4);
+
+		assertEquals("[-1, 7]", domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, a, b, null)
+				.representation().toString());
+		assertEquals("[-6, 2]", domain.evalBinaryExpression(NumericNonOverflowingSub.INSTANCE, a, b, null)
+				.representation().toString());
+		assertEquals("[-8, 12]", domain.evalBinaryExpression(NumericNonOverflowingMul.INSTANCE, a, b, null)
+				.representation().toString());
+		assertEquals("[-2, 3]", domain.evalBinaryExpression(NumericNonOverflowingDiv.INSTANCE, a, b, null)
+				.representation().toString());
+		assertTrue(domain.evalBinaryExpression(NumericNonOverflowingDiv.INSTANCE, a, interval(domain, 0, 0), null)
+				.isBottom());
+		// overflowing bounds become infinite
+		Intervals big = interval(domain, 0, Integer.MAX_VALUE - 1);
+		assertEquals("[0, +Inf]", domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, big, big, null)
+				.representation().toString());
+		// a finite lower bound that overflows is not infinite
+		Intervals max = interval(domain, Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1);
+		Intervals sum = domain.evalBinaryExpression(NumericNonOverflowingAdd.INSTANCE, max, interval(domain, 1, 1),
+				null);
+		assertFalse(sum.isBottom());
+		assertEquals("[" + (Integer.MAX_VALUE - 1) + ", +Inf]", sum.representation().toString());
+	}
+
+	@Test
+	public void testWideningThresholds() throws SemanticException {
+		Intervals domain = Intervals.withThresholds(0, 10, 100);
+		Intervals widened = interval(domain, 0, 1).widening(interval(domain, 0, 2));
+		assertEquals("[0, 10]", widened.representation().toString());
+		widened = widened.widening(interval(domain, 0, 11));
+		assertEquals("[0, 100]", widened.representation().toString());
+		widened = widened.widening(interval(domain, -1, 101));
+		assertEquals("[-Inf, +Inf]", widened.representation().toString());
+		assertTrue(widened.isTop());
+	}
+
+	@Test
+	public void testThresholdsFromProgram() throws ParsingException {
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		// the literals of signs.imp are nested in assignments and conditions
+		assertArrayEquals(new int[] { -10, -7, -2, -1, 0, 1, 2, 7, 10 },
+				Intervals.withThresholdsFrom(program).getThresholds());
+	}
+
+	@Test
+	public void testIntervals() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/intervals");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(Intervals.withThresholdsFrom(program)),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+	}
+}
@@ -0,0 +1,150 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.analysis.value.ValueDomain;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Assignment;
+import it.unive.lisa.program.cfg.statement.Return;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.program.cfg.statement.VariableRef;
+
+public class LiveVariablesTest {
+
+	private static final Pattern BINDING = Pattern.compile("([A-Za-z_]\\w*): ([^\\s\\]<]+)");
+
+	private static CFG cfgOf(Program program, String name) {
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals(name))
+				return cfg;
+		return null;
+	}
+
+	private static Statement assignmentTo(CFG cfg, String name) {
+		for (Statement st : cfg.getNodes())
+			if (st instanceof Assignment && ((Assignment) st).getLeft() instanceof VariableRef
+					&& ((VariableRef) ((Assignment) st).getLeft()).getName().equals(name))
+				return st;
+		return null;
+	}
+
+	@Test
+	public void testLiveness() throws ParsingException {
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+
+		// in f0, i is read by the loop and returned
+		CFG f0 = cfgOf(program, "f0");
+		LiveVariables live = LiveVariables.of(f0);
+		for (Statement st : f0.getNodes())
+			if (st instanceof Return)
+				assertTrue(live.liveBefore(st).contains("i"));
+			else
+				assertTrue(st + " should keep i live", live.liveAfter(st).contains("i"));
+
+		// in f3, nothing is read after the last assignment
+		CFG f3 = cfgOf(program, "f3");
+		live = LiveVariables.of(f3);
+		Statement last = assignmentTo(f3, "y");
+		assertNotNull(last);
+		assertTrue(live.liveAfter(last).isEmpty());
+		assertEquals(Collections.singleton("x"), live.liveBefore(last));
+	}
+
+	@Test
+	public void testPrunedPackedEnvironment() throws ParsingException, AnalysisException {
+		checkPruning(new PackedSignEnvironment(SignSemantics.EXT_SIGNS, false),
+				new PackedSignEnvironment(SignSemantics.EXT_SIGNS, true));
+	}
+
+	@Test
+	public void testPrunedSparseEnvironment() throws ParsingException, AnalysisException {
+		checkPruning(new SparseSignEnvironment(SignSemantics.EXT_SIGNS, false),
+				new SparseSignEnvironment(SignSemantics.EXT_SIGNS, true));
+	}
+
+	private static <V extends ValueDomain<V>> void checkPruning(V full, V pruned)
+			throws ParsingException, AnalysisException {
+		Map<String, String> expected = statesOf(full);
+		Map<String, String> actual = statesOf(pruned);
+		assertEquals(expected.keySet(), actual.keySet());
+
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+		boolean pruning = false;
+		int checked = 0;
+		for (CFG cfg : program.getAllCFGs()) {
+			LiveVariables live = LiveVariables.of(cfg);
+			for (Statement st : cfg.getNodes()) {
+				// same key of StateCollector
+				String key = cfg.getDescriptor().getFullSignatureWithParNames() + " " + st.getLocation() + " " + st;
+				assertTrue("Missing state of " + key, actual.containsKey(key));
+				Map<String, String> kept = bindingsOf(actual.get(key));
+				Map<String, String> all = bindingsOf(expected.get(key));
+
+				// live variables keep exactly the same binding
+				for (String name : live.liveAfter(st)) {
+					assertEquals("Binding of " + name + " changed at " + key, all.get(name), kept.get(name));
+					checked++;
+				}
+
+				// pruning only removes bindings
+				for (Map.Entry<String, String> binding : kept.entrySet())
+					assertEquals("Unexpected binding at " + key, all.get(binding.getKey()), binding.getValue());
+				pruning |= kept.size() < all.size();
+
+				// x and y are both dead after the last assignment of f3
+				if (cfg.getDescriptor().getName().equals("f3") && st.toString().equals("y = *(x, -(x))")) {
+					assertFalse(kept.containsKey("y"));
+					assertFalse(kept.containsKey("x"));
+				}
+			}
+		}
+		assertTrue("No live variable has been checked", checked > 0);
+		assertTrue("No binding has been pruned", pruning);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static <V extends ValueDomain<V>> Map<String, String> statesOf(V domain)
+			throws ParsingException, AnalysisException {
+		StateCollector collector = new StateCollector();
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.addSemanticCheck(collector);
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						domain,
+						new TypeEnvironment<>(new InferredTypes())));
+
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+		new LiSA(conf).run(program);
+		return collector.getStates();
+	}
+
+	private static Map<String, String> bindingsOf(String state) {
+		Map<String, String> bindings = new HashMap<>();
+		Matcher matcher = BINDING.matcher(state);
+		while (matcher.find())
+			bindings.put(matcher.group(1), matcher.group(2));
+		return bindings;
+	}
+}
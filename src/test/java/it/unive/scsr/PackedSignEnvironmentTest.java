@@ -0,0 +1,71 @@
+package it.unive.scsr;
+
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class PackedSignEnvironmentTest {
+
+	@Test
+	public void testExtSigns() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ext-sign-packed");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PackedSignEnvironment(SignSemantics.EXT_SIGNS),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		Reports.assertSameResults(Paths.get("expected", "ext-sign"), Paths.get("outputs", "ext-sign-packed"));
+	}
+
+	@Test
+	public void testSameResultsAsSigns() throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/signs-map");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new Signs()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		new LiSA(conf).run(program);
+
+		conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/signs-packed");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PackedSignEnvironment(SignSemantics.SIGNS),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		program = IMPFrontend.processFile("inputs/signs.imp");
+		new LiSA(conf).run(program);
+
+		Reports.assertSameResults(Paths.get("outputs", "signs-map"), Paths.get("outputs", "signs-packed"));
+	}
+}
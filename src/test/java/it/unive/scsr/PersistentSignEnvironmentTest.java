@@ -0,0 +1,108 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+
+public class PersistentSignEnvironmentTest {
+
+	@Test
+	public void testExtSigns() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ext-sign-persistent");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PersistentSignEnvironment(SignSemantics.EXT_SIGNS),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		Reports.assertSameResults(Paths.get("expected", "ext-sign"), Paths.get("outputs", "ext-sign-persistent"));
+	}
+
+	@Test
+	public void testSameResultsAsSigns() throws ParsingException, AnalysisException {
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/signs-map-persistent");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new Signs()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		Program program = IMPFrontend.processFile("inputs/signs.imp");
+		new LiSA(conf).run(program);
+
+		conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/signs-persistent");
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new PersistentSignEnvironment(SignSemantics.SIGNS),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		program = IMPFrontend.processFile("inputs/signs.imp");
+		new LiSA(conf).run(program);
+
+		Reports.assertSameResults(Paths.get("outputs", "signs-map-persistent"), Paths.get("outputs", "signs-persistent"));
+	}
+
+	@Test
+	public void testMapAgainstHashMap() {
+		Random random = new Random(42);
+		PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+		Map<Integer, Integer> reference = new HashMap<>();
+		for (int i = 0; i < 10000; i++) {
+			// few distinct hashes in the upper bits force deep tries
+			Integer key = random.nextInt(500) << 20;
+			if (random.nextInt(3) == 0) {
+				map = map.remove(key);
+				reference.remove(key);
+			} else {
+				Integer value = random.nextInt(4);
+				map = map.put(key, value);
+				reference.put(key, value);
+			}
+			assertEquals(reference.size(), map.size());
+		}
+
+		Map<Integer, Integer> contents = new HashMap<>();
+		map.forEach(contents::put);
+		assertEquals(reference, contents);
+		assertNull(map.get(-1));
+
+		// updates that do not change anything must return the same map
+		for (Map.Entry<Integer, Integer> entry : reference.entrySet())
+			assertSame(map, map.put(entry.getKey(), entry.getValue()));
+		assertSame(map, map.remove(-1));
+	}
+}
@@ -0,0 +1,37 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Assertions on the reports that LiSA writes in the working directory of an
+ * analysis, shared by the tests that compare two runs.
+ */
+final class Reports {
+
+	private Reports() {
+	}
+
+	/**
+	 * Asserts that the reports in the two given working directories, and the
+	 * files they list, are the same.
+	 */
+	static void assertSameResults(Path expectedPath, Path actualPath) {
+		try {
+			List<DotReportComparer.Difference> differences = new DotReportComparer(
+					Runtime.getRuntime().availableProcessors(), false).compare(expectedPath, actualPath);
+			assertTrue("Results are different:\n" + differences, differences.isEmpty());
+		} catch (NoSuchFileException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to find report file");
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			fail("Unable to compare reports");
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.imp.ParsingException;
+
+public class SubmissionEvaluatorTest {
+
+	private static void copyAs(Path source, Path target, String from, String to) throws IOException {
+		String content = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+		Files.write(target, content.replace(from, to).getBytes(StandardCharsets.UTF_8));
+	}
+
+	// a submission whose classes are the reference solutions, with the given
+	// text added to the body of its ExtSignDomain
+	private static Path submission(String name, String extSignBody) throws IOException {
+		Path sources = Paths.get("src", "main", "java", "it", "unive", "scsr");
+		Path submission = Paths.get("outputs", "submissions", name);
+		Path target = submission.resolve(Paths.get("src", "main", "java", "it", "unive", "scsr"));
+		Files.createDirectories(target);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(sources, "*.java")) {
+			for (Path file : files)
+				Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+		}
+		String declaration = "public class ExtSignDomainSolution extends BaseNonRelationalValueDomain<ExtSignDomainSolution> {";
+		copyAs(sources.resolve("ExtSignDomainSolution.java"), target.resolve("ExtSignDomain.java"),
+				declaration, declaration + "\n" + extSignBody);
+		copyAs(target.resolve("ExtSignDomain.java"), target.resolve("ExtSignDomain.java"),
+				"ExtSignDomainSolution", "ExtSignDomain");
+		copyAs(sources.resolve("AvailableExpressionsSolution.java"), target.resolve("AvailableExpressions.java"),
+				"AvailableExpressionsSolution", "AvailableExpressions");
+		return submission;
+	}
+
+	@Test
+	public void testReferenceSolutions() throws IOException, ParsingException, AnalysisException {
+		SubmissionEvaluator evaluator = new SubmissionEvaluator();
+		assertEquals("solution\text-sign: ok\tavailable-expressions: ok",
+				evaluator.evaluate(submission("solution", "")));
+	}
+
+	@Test
+	public void testTimeout() throws IOException, ParsingException, AnalysisException {
+		// the domain never finishes initializing, even when interrupted, but
+		// the other task still runs
+		Path submission = submission("looping",
+				"\tprivate static volatile boolean spinning = true;\n\n"
+						+ "\tstatic {\n\t\twhile (spinning)\n\t\t\tcontinue;\n\t}\n");
+		SubmissionEvaluator evaluator = new SubmissionEvaluator(10, TimeUnit.SECONDS);
+		String line = evaluator.evaluate(submission);
+		assertTrue(line, line.startsWith("looping\text-sign: timed out"));
+		assertTrue(line, line.endsWith("\tavailable-expressions: ok"));
+	}
+
+	@Test
+	public void testExit() throws IOException, ParsingException, AnalysisException {
+		// exiting only terminates the worker of the task
+		Path submission = submission("exiting", "\tstatic {\n\t\tSystem.exit(3);\n\t}\n");
+		String line = new SubmissionEvaluator().evaluate(submission);
+		assertEquals("exiting\text-sign: exited with status 3\tavailable-expressions: ok", line);
+	}
+
+	@Test
+	public void testCompilationFailure() throws IOException, ParsingException, AnalysisException {
+		Path submission = submission("broken", "\tnot java\n");
+		String line = new SubmissionEvaluator().evaluate(submission);
+		assertTrue(line, line.startsWith("broken\tcompilation failed: "));
+		// reported once, not once per task
+		assertEquals(line, 1, line.split("\t").length - 1);
+	}
+}
@@ -0,0 +1,144 @@
+package it.unive.scsr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import it.unive.lisa.AnalysisException;
+import it.unive.lisa.LiSA;
+import it.unive.lisa.LiSAConfiguration;
+import it.unive.lisa.analysis.SemanticException;
+import it.unive.lisa.analysis.SimpleAbstractState;
+import it.unive.lisa.analysis.dataflow.DefiniteForwardDataflowDomain;
+import it.unive.lisa.analysis.heap.MonolithicHeap;
+import it.unive.lisa.analysis.nonrelational.value.TypeEnvironment;
+import it.unive.lisa.analysis.nonrelational.value.ValueEnvironment;
+import it.unive.lisa.analysis.types.InferredTypes;
+import it.unive.lisa.caches.Caches;
+import it.unive.lisa.imp.IMPFrontend;
+import it.unive.lisa.imp.ParsingException;
+import it.unive.lisa.program.Program;
+import it.unive.lisa.program.SyntheticLocation;
+import it.unive.lisa.program.cfg.CFG;
+import it.unive.lisa.program.cfg.statement.Statement;
+import it.unive.lisa.symbolic.value.Constant;
+import it.unive.lisa.symbolic.value.Variable;
+import it.unive.lisa.type.common.Int32;
+
+public class WTOWorkingSetTest {
+
+	@Test
+	public void testNestedLoops() {
+		// 1 -> 2 -> 3 -> 4 -> 5 -> 6 -> 8, with loops 7 -> 3 and 6 -> 5
+		Map<Integer, List<Integer>> graph = new HashMap<>();
+		graph.put(1, Arrays.asList(2));
+		graph.put(2, Arrays.asList(3, 8));
+		graph.put(3, Arrays.asList(4));
+		graph.put(4, Arrays.asList(5, 7));
+		graph.put(5, Arrays.asList(6));
+		graph.put(6, Arrays.asList(5, 7));
+		graph.put(7, Arrays.asList(3, 8));
+		graph.put(8, Collections.emptyList());
+
+		WeakTopologicalOrder<Integer> wto = new WeakTopologicalOrder<>(Arrays.asList(1), graph::get);
+		// 1 2 (3 4 (5 6) 7) 8
+		for (int i = 0; i < 8; i++)
+			assertEquals(Integer.valueOf(i + 1), wto.get(i));
+		assertTrue(wto.isHead(3));
+		assertTrue(wto.isHead(5));
+		assertFalse(wto.isHead(2));
+		assertFalse(wto.isHead(7));
+	}
+
+	@Test
+	public void testWideningOnlyAtHeads() throws ParsingException, SemanticException {
+		Program program = IMPFrontend.processFile("inputs/reaching-definitions.imp");
+		CFG test3 = null;
+		for (CFG cfg : program.getAllCFGs())
+			if (cfg.getDescriptor().getName().equals("test3"))
+				test3 = cfg;
+
+		WTOWorkingSet ws = WTOWorkingSet.mk();
+		for (Statement st : test3.getNodes())
+			ws.push(st);
+
+		Variable x = new Variable(Caches.types().mkSingletonSet(Int32.INSTANCE), "x", SyntheticLocation.INSTANCE);
+		ValueEnvironment<Intervals> env = new ValueEnvironment<>(new Intervals());
+		int heads = 0;
+		while (!ws.isEmpty()) {
+			Statement st = ws.pop();
+			ValueEnvironment<Intervals> zero = env.assign(x, new Constant(Int32.INSTANCE, 0, st.getLocation()), st);
+			ValueEnvironment<Intervals> one = env.assign(x, new Constant(Int32.INSTANCE, 1, st.getLocation()), st);
+			ValueEnvironment<Intervals> expected = ws.isHead(st) ? zero.widening(one) : zero.lub(one);
+			if (ws.isHead(st))
+				heads++;
+
+			HeadWideningValueDomain<ValueEnvironment<Intervals>> widened = new HeadWideningValueDomain<>(zero)
+					.widening(new HeadWideningValueDomain<>(one));
+			assertEquals(st.toString(), new HeadWideningValueDomain<>(expected), widened);
+		}
+		// the condition of the for loop
+		assertEquals(1, heads);
+
+		// outside of a fixpoint over this working set, widening is left as is
+		ValueEnvironment<Intervals> zero = env.assign(x, new Constant(Int32.INSTANCE, 0, SyntheticLocation.INSTANCE),
+				null);
+		ValueEnvironment<Intervals> one = env.assign(x, new Constant(Int32.INSTANCE, 1, SyntheticLocation.INSTANCE),
+				null);
+		assertNotEquals(zero.lub(one), zero.widening(one));
+		assertEquals(new HeadWideningValueDomain<>(zero.widening(one)),
+				new HeadWideningValueDomain<>(zero).widening(new HeadWideningValueDomain<>(one)));
+	}
+
+	@Test
+	public void testAvailableExpressions() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/ae-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ae-wto");
+		conf.setFixpointWorkingSet(WTOWorkingSet.class);
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new DefiniteForwardDataflowDomain<>(new AvailableExpressionsSolution()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		Reports.assertSameResults(Paths.get("expected", "available-expressions"), Paths.get("outputs", "ae-wto"));
+	}
+
+	@Test
+	public void testExtSign() throws ParsingException, AnalysisException {
+		Program program = IMPFrontend.processFile("inputs/ext-sign-eval.imp");
+
+		LiSAConfiguration conf = new LiSAConfiguration();
+		conf.setJsonOutput(true);
+		conf.setDumpAnalysis(true);
+		conf.setWorkdir("outputs/ext-sign-wto");
+		conf.setFixpointWorkingSet(WTOWorkingSet.class);
+		conf.setAbstractState(
+				new SimpleAbstractState<>(
+						new MonolithicHeap(),
+						new ValueEnvironment<>(new ExtSignDomainSolution()),
+						new TypeEnvironment<>(new InferredTypes())));
+
+		LiSA lisa = new LiSA(conf);
+		lisa.run(program);
+
+		Reports.assertSameResults(Paths.get("expected", "ext-sign"), Paths.get("outputs", "ext-sign-wto"));
+	}
+}
@@ -1,62 +1,156 @@
 #!/bin/bash
-logdir=eval-logs
-if [ -d "$logdir" ]; then
-  rm -rf $logdir
+# Grades every remote branch against the tests selected by the given filter.
+# Each branch is merged with master in its own git worktree, and up to
+# $jobs branches are built and tested at the same time. All builds go
+# through the Gradle wrapper of master, so they share the same Gradle
+# distribution and reuse the same pool of warm daemons. Results are
+# collected in a single summary ($summary) and a single log ($report).
+#
+# usage: ./tester.sh [-j jobs] [-t timeout] <test filter>
+#        ./tester.sh cleanup
+
+jobs=$(nproc 2>/dev/null || echo 4)
+limit=15m
+while getopts "j:t:" opt; do
+  case $opt in
+    j) jobs=$OPTARG ;;
+    t) limit=$OPTARG ;;
+    *) echo "usage: $0 [-j jobs] [-t timeout] <test filter> | cleanup"; exit 1 ;;
+  esac
+done
+shift $((OPTIND - 1))
+
+root=$(pwd)
+worktrees=$root/eval-worktrees
+logdir=$root/eval-logs
+summary=$root/eval-summary.tsv
+report=$root/eval-report.log
+
+if [ "$1" == "cleanup" ]; then
+  for dir in "$worktrees"/*; do
+    [ -d "$dir" ] && git worktree remove --force "$dir"
+  done
+  git worktree prune
+  rm -rf "$worktrees" "$logdir"
+  exit 0
 fi
-mkdir $logdir
 
-for source in $(git for-each-ref --format='%(refname:lstrip=3)' refs/remotes/origin/); do
-  if [ "$source" == "master" ]; then
-	continue
-  fi
-  
-  if [ "$1" == "cleanup" ]; then
-    git branch -D $source
-    continue 
-  fi
-  
-  logfile=$logdir/$source.log
-  
-  echo "+ checking out branch: $source"
-  git checkout $source >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### checkout failed on $source"
-	continue
-  fi
-  
-  echo "++ merging master into $source"
-  GIT_MERGE_AUTOEDIT=no git merge master >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### merge failed on $source"
-	continue
-  fi
-  
-  echo "++ building $source"
-  bash ./gradlew assemble >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### build failed on $source"
-	continue
+if [ -z "$1" ]; then
+  echo "usage: $0 [-j jobs] [-t timeout] <test filter> | cleanup"
+  exit 1
+fi
+filter=$1
+
+rm -rf "$logdir" "$summary" "$report"
+mkdir -p "$logdir" "$worktrees"
+git fetch --all --prune > /dev/null 2>&1
+
+# runs a step of the grading of a branch, with its output in the branch's log
+step() {
+  local logfile=$1
+  shift
+  echo "\$ $*" >> "$logfile"
+  "$@" >> "$logfile" 2>&1
+}
+
+# yields the name of the files of a branch: branch names may contain '/',
+# which would otherwise create subdirectories of $worktrees and $logdir
+slug() {
+  echo "${1//\//__}"
+}
+
+# yields the value of a numeric attribute of a junit testsuite header, or 0
+attribute() {
+  local value=$(echo "$2" | sed -n "s/.* $1=\"\([0-9]*\)\".*/\1/p")
+  echo "${value:-0}"
+}
+
+# grades a single branch, writing one line of summary in $logdir/<slug>.result
+grade() {
+  local source=$1
+  local name=$(slug "$source")
+  local dir=$worktrees/$name
+  local logfile=$logdir/$name.log
+  local start=$(date +%s)
+  local status=ok
+
+  echo "+ grading $source"
+  if [ -d "$dir" ]; then
+    git worktree remove --force "$dir" > /dev/null 2>&1
   fi
-  
-  echo "++ testing $source"
-  bash ./gradlew test --tests $1 >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### test failed on $source"
-	continue
+
+  # worktrees are registered in the shared repository, so adding them is
+  # serialized; everything after that happens in the branch's own worktree
+  if ! step "$logfile" flock "$root/.git/tester.lock" git worktree add --force --detach "$dir" "origin/$source"; then
+    status="checkout failed"
+  elif ! (cd "$dir" && GIT_MERGE_AUTOEDIT=no step "$logfile" git merge --no-edit master); then
+    status="merge failed"
+  else
+    step "$logfile" timeout "$limit" bash "$root/gradlew" --daemon -p "$dir" assemble
+    local code=$?
+    if [ $code -eq 124 ]; then
+      status="build timed out"
+    elif [ $code -ne 0 ]; then
+      status="build failed"
+    else
+      step "$logfile" timeout "$limit" bash "$root/gradlew" --daemon -p "$dir" test --tests "$filter"
+      code=$?
+      if [ $code -eq 124 ]; then
+        status="test timed out"
+      elif [ $code -ne 0 ]; then
+        status="test failed"
+      fi
+    fi
   fi
-  
-  echo "++ resetting $source"
-  git reset --hard >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### reset failed on $source"
-	continue
+
+  # counts from the junit reports, if any
+  local tests=0 failures=0 errors=0
+  for xml in "$dir"/build/test-results/test/*.xml; do
+    [ -f "$xml" ] || continue
+    local header=$(grep -m1 -o '<testsuite [^>]*' "$xml")
+    tests=$((tests + $(attribute tests "$header")))
+    failures=$((failures + $(attribute failures "$header")))
+    errors=$((errors + $(attribute errors "$header")))
+  done
+
+  local elapsed=$(($(date +%s) - start))
+  printf "%s\t%s\t%s\t%s\t%s\t%ss\n" "$source" "$status" "$tests" "$failures" "$errors" "$elapsed" \
+    > "$logdir/$name.result"
+  if [ "$status" == "ok" ]; then
+    echo "++ $source: ok (${elapsed}s)"
+  else
+    echo "###### $status on $source (${elapsed}s)"
   fi
-  git clean -fd >> $logfile 2>&1
-  if [ $? -ne 0 ]; then
-	echo "###### reset failed on $source"
-	continue
+}
+
+branches=()
+for source in $(git for-each-ref --format='%(refname:lstrip=3)' refs/remotes/origin/); do
+  if [ "$source" == "master" ] || [ "$source" == "HEAD" ]; then
+    continue
   fi
+  branches+=("$source")
+done
+
+for source in "${branches[@]}"; do
+  # bounded parallelism: wait for a slot before starting the next branch
+  while [ "$(jobs -rp | wc -l)" -ge "$jobs" ]; do
+    wait -n
+  done
+  grade "$source" &
+done
+wait
+
+printf "branch\tstatus\ttests\tfailures\terrors\ttime\n" > "$summary"
+for source in "${branches[@]}"; do
+  name=$(slug "$source")
+  cat "$logdir/$name.result" >> "$summary"
+  {
+    echo "==================== $source: $(cut -f2 "$logdir/$name.result")"
+    cat "$logdir/$name.log"
+    echo
+  } >> "$report"
 done
+rm -rf "$logdir"
 
-echo "+ checking out master"
-git checkout master
+echo "+ summary written to $summary, logs to $report"
+column -t -s $'\t' "$summary" 2>/dev/null || cat "$summary"